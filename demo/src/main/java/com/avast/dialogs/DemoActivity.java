@@ -34,6 +34,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.avast.android.dialogs.fragment.DatePickerDialogFragment;
+import com.avast.android.dialogs.fragment.DialogFragmentFactory;
 import com.avast.android.dialogs.fragment.ListDialogFragment;
 import com.avast.android.dialogs.fragment.ProgressDialogFragment;
 import com.avast.android.dialogs.fragment.SimpleDialogFragment;
@@ -63,6 +64,8 @@ public class DemoActivity extends AppCompatActivity implements
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
+        // dialogs restored by super.onCreate() are created without reflection
+        getSupportFragmentManager().setFragmentFactory(new DialogFragmentFactory());
         super.onCreate(savedInstanceState);
         setContentView(R.layout.main);
         getSupportActionBar().setDisplayShowHomeEnabled(true);
@@ -1,11 +1,19 @@
 package com.avast.android.dialogs.core;
 
+import java.util.concurrent.Executor;
+
 import android.content.Context;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.avast.android.dialogs.iface.IDialogFragmentSupplier;
 
 
 /**
@@ -17,6 +25,11 @@ public abstract class BaseDialogBuilder<T extends BaseDialogBuilder<T>> {
 
     public final static String ARG_REQUEST_CODE = "request_code";
     public final static String ARG_CANCELABLE_ON_TOUCH_OUTSIDE = "cancelable_oto";
+    public final static String ARG_NOTIFY_PARENT_FRAGMENT = "notify_parent_fragment";
+    /**
+     * Message of dialogs which have one, {@link DialogTemplate} formats it
+     */
+    public final static String ARG_MESSAGE = "message";
     public final static String DEFAULT_TAG = "simple_dialog";
     private String mTag = DEFAULT_TAG;
     public final static int DEFAULT_REQUEST_CODE = -42;
@@ -26,22 +39,49 @@ public abstract class BaseDialogBuilder<T extends BaseDialogBuilder<T>> {
     protected final Context mContext;
     protected final FragmentManager mFragmentManager;
     protected final Class<? extends BaseDialogFragment> mClass;
+    private final IDialogFragmentSupplier<? extends BaseDialogFragment> mSupplier;
     private Fragment mTargetFragment;
+    private final LifecycleOwner mHost;
     private boolean mCancelable = true;
     private boolean mCancelableOnTouchOutside = true;
     private boolean mUseDarkTheme = false;
     private boolean mUseLightTheme = false;
+    private boolean mNotifyParentFragment = false;
 
     public BaseDialogBuilder(Context context, FragmentManager fragmentManager, Class<? extends BaseDialogFragment> clazz) {
+        this(context, fragmentManager, clazz, null);
+    }
+
+    /**
+     * @param supplier creates instances of the dialog, null to create them with the FragmentFactory of the fragment
+     *                 manager, which uses reflection unless it knows the class
+     */
+    public BaseDialogBuilder(Context context, FragmentManager fragmentManager, Class<? extends BaseDialogFragment> clazz,
+                             IDialogFragmentSupplier<? extends BaseDialogFragment> supplier) {
         mFragmentManager = fragmentManager;
         mContext = context.getApplicationContext();
+        // usually the activity, a dialog which isn't committed yet reports to it
+        mHost = context instanceof LifecycleOwner ? (LifecycleOwner) context : null;
         mClass = clazz;
+        mSupplier = supplier;
     }
 
     protected abstract T self();
 
+    /**
+     * Build arguments of the dialog. It may be called on a background thread, see {@link #showAsync()}, so it must not
+     * touch views and the builder must not be changed while the dialog is being shown.
+     */
     protected abstract Bundle prepareArguments();
 
+    /**
+     * Release whatever {@link #prepareArguments()} keeps out of the Bundle, e.g. in
+     * {@link com.avast.android.dialogs.util.RetainedObjectStore}, when the arguments are dropped without creating a
+     * dialog. Once a dialog is committed, it releases them itself.
+     */
+    protected void releaseArguments(Bundle args) {
+    }
+
     public T setCancelable(boolean cancelable) {
         mCancelable = cancelable;
         return self();
@@ -71,6 +111,15 @@ public abstract class BaseDialogBuilder<T extends BaseDialogBuilder<T>> {
         return self();
     }
 
+    /**
+     * Notify the parent fragment as a listener when the dialog is shown from a child fragment manager without a
+     * target fragment. Off by default.
+     */
+    public T setNotifyParentFragment(boolean notifyParentFragment) {
+        mNotifyParentFragment = notifyParentFragment;
+        return self();
+    }
+
     public T useDarkTheme() {
         mUseDarkTheme = true;
         return self();
@@ -81,16 +130,38 @@ public abstract class BaseDialogBuilder<T extends BaseDialogBuilder<T>> {
         return self();
     }
 
-    private BaseDialogFragment create() {
-        final Bundle args = prepareArguments();
+    String getTag() {
+        return mTag;
+    }
 
-        final BaseDialogFragment fragment = (BaseDialogFragment) Fragment.instantiate(mContext, mClass.getName(), args);
+    int getRequestCode() {
+        return mRequestCode;
+    }
 
-        args.putBoolean(ARG_CANCELABLE_ON_TOUCH_OUTSIDE, mCancelableOnTouchOutside);
+    FragmentManager getFragmentManager() {
+        return mFragmentManager;
+    }
 
-        args.putBoolean(ARG_USE_DARK_THEME, mUseDarkTheme);
+    /**
+     * @return lifecycle the dialog is shown for, null when unknown
+     */
+    LifecycleOwner getHost() {
+        return mTargetFragment != null ? mTargetFragment : mHost;
+    }
 
-        args.putBoolean(ARG_USE_LIGHT_THEME, mUseLightTheme);
+    BaseDialogFragment create() {
+        return create(prepareArguments());
+    }
+
+    /**
+     * @param args arguments from {@link #prepareArguments()}
+     */
+    BaseDialogFragment create(Bundle args) {
+        final BaseDialogFragment fragment = instantiate(mFragmentManager, mClass, mSupplier);
+        fragment.setArguments(args);
+        fragment.setShowHost(getHost());
+
+        putCommonArguments(args);
 
         if (mTargetFragment != null) {
             fragment.setTargetFragment(mTargetFragment, mRequestCode);
@@ -101,12 +172,131 @@ public abstract class BaseDialogBuilder<T extends BaseDialogBuilder<T>> {
         return fragment;
     }
 
+    /**
+     * Arguments of the dialog for {@link #toTemplate()}. Builders which keep anything out of the Bundle, which can't
+     * be shared by more dialogs, throw {@link IllegalStateException}.
+     */
+    protected Bundle prepareTemplateArguments() {
+        return prepareArguments();
+    }
+
+    /**
+     * Freeze the dialog into an immutable template which can be shown any number of times, from any thread, without
+     * building its arguments again. The builder can be changed or dropped afterwards.
+     *
+     * @throws IllegalStateException when a target fragment is set, use the request code instead
+     */
+    public DialogTemplate toTemplate() {
+        if (mTargetFragment != null) {
+            throw new IllegalStateException("a template can't keep a target fragment, set a request code instead");
+        }
+        Bundle args = prepareTemplateArguments();
+        putCommonArguments(args);
+        return new DialogTemplate(mClass, mSupplier, args, mTag, mRequestCode, mCancelable);
+    }
+
     public DialogFragment show() {
         BaseDialogFragment fragment = create();
         fragment.show(mFragmentManager, mTag);
         return fragment;
     }
 
+    /**
+     * Like show() but arguments of the dialog are prepared on {@link AsyncTask#THREAD_POOL_EXECUTOR}.
+     *
+     * @see #showAsync(Executor)
+     */
+    public DialogShowHandle showAsync() {
+        return showAsync(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Like show() but arguments of the dialog, with any resources they need, are prepared on the executor and only
+     * the fragment transaction is committed on the main thread. The show can be cancelled with the returned handle
+     * until it's committed.
+     * <p>
+     * Values set on the builder before this call are visible to the executor, the executor guarantees that. The
+     * builder must not be changed or reused afterwards, {@link #prepareArguments()} reads it on the executor and the
+     * common options are read again on the main thread.
+     */
+    public DialogShowHandle showAsync(Executor executor) {
+        final DialogShowHandle handle = new DialogShowHandle();
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        final FragmentManager fragmentManager = mFragmentManager;
+        final String tag = mTag;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (handle.isCancelled()) {
+                    return;
+                }
+                final Bundle args = prepareArguments();
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (fragmentManager.isDestroyed()) {
+                            handle.cancel();
+                        }
+                        if (!handle.commit()) {
+                            // cancelled after the arguments were prepared, nobody else releases them
+                            releaseArguments(args);
+                            return;
+                        }
+                        BaseDialogFragment fragment = create(args);
+                        // the activity might have been stopped in the meantime
+                        if (fragmentManager.isStateSaved()) {
+                            fragment.showAllowingStateLoss(fragmentManager, tag);
+                        } else {
+                            fragment.show(fragmentManager, tag);
+                        }
+                        handle.setDialog(fragment);
+                    }
+                });
+            }
+        });
+        return handle;
+    }
+
+    /**
+     * Like show() but the dialog waits until dialogs shown through {@link DialogScheduler} before it are dismissed.
+     * It's not shown at all when the same dialog, with the same tag and request code, is already pending or shown.
+     * It's dropped when the target fragment, or the activity given as the context, is destroyed before its turn.
+     * Can be called from any thread.
+     */
+    public void schedule() {
+        schedule(DialogScheduler.PRIORITY_DEFAULT);
+    }
+
+    /**
+     * @param priority dialogs with higher priority are shown first, see {@link DialogScheduler#PRIORITY_DEFAULT}
+     * @see #schedule()
+     */
+    public void schedule(int priority) {
+        DialogScheduler.getInstance().post(this, priority);
+    }
+
+    private void putCommonArguments(Bundle args) {
+        args.putBoolean(ARG_CANCELABLE_ON_TOUCH_OUTSIDE, mCancelableOnTouchOutside);
+
+        args.putBoolean(ARG_USE_DARK_THEME, mUseDarkTheme);
+
+        args.putBoolean(ARG_USE_LIGHT_THEME, mUseLightTheme);
+
+        args.putBoolean(ARG_NOTIFY_PARENT_FRAGMENT, mNotifyParentFragment);
+    }
+
+    /**
+     * @param supplier creates the dialog, null to use the FragmentFactory of the fragment manager
+     */
+    static BaseDialogFragment instantiate(FragmentManager fragmentManager, Class<? extends BaseDialogFragment> clazz,
+                                          IDialogFragmentSupplier<? extends BaseDialogFragment> supplier) {
+        if (supplier != null) {
+            return supplier.get();
+        }
+        return (BaseDialogFragment) fragmentManager.getFragmentFactory()
+                .instantiate(clazz.getClassLoader(), clazz.getName());
+    }
+
     /**
      * Like show() but allows the commit to be executed after an activity's state is saved. This
      * is dangerous because the commit can be lost if the activity needs to later be restored from
@@ -16,29 +16,29 @@
 
 package com.avast.android.dialogs.core;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.Typeface;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.Button;
-import android.widget.FrameLayout;
-import android.widget.LinearLayout;
+import android.widget.EditText;
 import android.widget.ListAdapter;
 import android.widget.ListView;
-import android.widget.ScrollView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
@@ -47,9 +47,13 @@ import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.avast.android.dialogs.R;
 import com.avast.android.dialogs.iface.ISimpleDialogCancelListener;
+import com.avast.android.dialogs.util.FontSource;
 import com.avast.android.dialogs.util.TypefaceHelper;
 
 /**
@@ -61,10 +65,41 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
 
     protected int mRequestCode;
 
+    @StyleRes
+    private int mDialogTheme;
+
+    private DialogViewHolder mViewHolder;
+
+    /**
+     * Resolved on first use after attach, dropped on detach
+     */
+    private DialogListenerRegistry mListenerRegistry;
+
+    /**
+     * Activity or target fragment of the builder, known until the dialog is attached
+     */
+    private LifecycleOwner mShowHost;
+
+    /**
+     * Decides about the button divider once the content is laid out, but before the first frame is drawn.
+     */
+    private final ViewTreeObserver.OnPreDrawListener mScrollableContentListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (mViewHolder == null) {
+                return true;
+            }
+            mViewHolder.root.getViewTreeObserver().removeOnPreDrawListener(this);
+            // changed visibility needs another layout, skip drawing the stale one
+            return !modifyButtonsBasedOnScrollableContent(isContentScrollable());
+        }
+    };
+
     @NonNull
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState) {
         int theme = resolveTheme();
+        mDialogTheme = theme;
         Dialog dialog = new Dialog(getActivity(), theme);
 
         Bundle args = getArguments();
@@ -80,23 +115,49 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
         Builder builder = new Builder(getActivity(), inflater, container);
-        return build(builder).create();
+        builder.mShellTheme = mDialogTheme;
+        if (mDialogTheme != 0 && getShowsDialog()) {
+            // the cached context has the same theme as the dialog, the dialog layout is inflated with it
+            builder.mShellInflater = DialogThemeCache.getLayoutInflater(getActivity(), mDialogTheme);
+        }
+        View view = build(builder).create();
+        mViewHolder = builder.mViewHolder;
+        view.getViewTreeObserver().addOnPreDrawListener(mScrollableContentListener);
+        return view;
+    }
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        DialogScheduler.getInstance().onDialogCreated(this);
+    }
+
+    @Override
+    public void onAttach(@NonNull Context context) {
+        super.onAttach(context);
+        mShowHost = null;
     }
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
-        final Fragment targetFragment = getTargetFragment();
-        if (targetFragment != null) {
-            mRequestCode = getTargetRequestCode();
-        } else {
-            Bundle args = getArguments();
-            if (args != null) {
-                mRequestCode = args.getInt(BaseDialogBuilder.ARG_REQUEST_CODE, 0);
-            }
+        mRequestCode = resolveRequestCode();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (getActivity() != null) {
+            DialogThemeCache.invalidate(getActivity());
         }
     }
 
+    @Override
+    public void onDetach() {
+        super.onDetach();
+        mListenerRegistry = null;
+    }
+
     /**
      * Key method for using {@link com.avast.android.dialogs.core.BaseDialogFragment}.
      * Customized dialogs need to be set up via provided builder.
@@ -112,9 +173,29 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
         if (getDialog() != null && getRetainInstance()) {
             getDialog().setDismissMessage(null);
         }
+        if (mViewHolder != null) {
+            mViewHolder.root.getViewTreeObserver().removeOnPreDrawListener(mScrollableContentListener);
+            mViewHolder = null;
+        }
         super.onDestroyView();
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (isRemoving() || getActivity() == null || getActivity().isFinishing()) {
+            notifyFinished();
+        }
+    }
+
+    /**
+     * Let {@link DialogScheduler} show the next dialog. Called when the dialog is gone for good, subclasses call it
+     * when the dialog ends without being created at all.
+     */
+    protected void notifyFinished() {
+        DialogScheduler.getInstance().onDialogFinished(this);
+    }
+
     public void showAllowingStateLoss(FragmentManager manager, String tag) {
         FragmentTransaction ft = manager.beginTransaction();
         ft.add(this, tag);
@@ -123,32 +204,25 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
 
     @Override
     public void onShow(DialogInterface dialog) {
-        if (getView() != null) {
-            ScrollView vMessageScrollView = (ScrollView) getView().findViewById(R.id.sdl_message_scrollview);
-            ListView vListView = (ListView) getView().findViewById(R.id.sdl_list);
-            FrameLayout vCustomViewNoScrollView = (FrameLayout) getView().findViewById(R.id.sdl_custom);
-            boolean customViewNoScrollViewScrollable = false;
-            if (vCustomViewNoScrollView.getChildCount() > 0) {
-                View firstChild = vCustomViewNoScrollView.getChildAt(0);
-                if (firstChild instanceof ViewGroup) {
-                    customViewNoScrollViewScrollable = isScrollable((ViewGroup) firstChild);
-                }
-            }
-            boolean listViewScrollable = isScrollable(vListView);
-            boolean messageScrollable = isScrollable(vMessageScrollView);
-            boolean scrollable = listViewScrollable || messageScrollable || customViewNoScrollViewScrollable;
-            modifyButtonsBasedOnScrollableContent(scrollable);
-        }
+        // the button divider is already set up before the first frame, see mScrollableContentListener
     }
 
     @Override
     public void onCancel(DialogInterface dialog) {
         super.onCancel(dialog);
-        for (ISimpleDialogCancelListener listener : getCancelListeners()) {
-            listener.onCancelled(mRequestCode);
+        List<ISimpleDialogCancelListener> listeners = getCancelListeners();
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onCancelled(mRequestCode);
         }
     }
 
+    /**
+     * @return list of the dialog or null when it has none or its view doesn't exist
+     */
+    protected ListView getListView() {
+        return mViewHolder != null ? mViewHolder.list : null;
+    }
+
     /**
      * Get dialog cancel listeners.
      * There might be more than one cancel listener.
@@ -161,55 +235,108 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
     }
 
     /**
-     * Utility method for acquiring all listeners of some type for current instance of DialogFragment
+     * Utility method for acquiring all listeners of some type for current instance of DialogFragment.
+     * Listeners are resolved once per attach, see {@link DialogListenerRegistry}.
      *
      * @param listenerInterface Interface of the desired listeners
      * @return Unmodifiable list of listeners
      * @since 2.1.0
      */
-    @SuppressWarnings("unchecked")
     protected <T> List<T> getDialogListeners(Class<T> listenerInterface) {
-        final Fragment targetFragment = getTargetFragment();
-        List<T> listeners = new ArrayList<T>(2);
-        if (targetFragment != null && listenerInterface.isAssignableFrom(targetFragment.getClass())) {
-            listeners.add((T) targetFragment);
+        if (mListenerRegistry == null) {
+            if (getActivity() == null) {
+                // not attached, only a dialog which wasn't committed yet knows where it's shown
+                return getShowHostListeners(listenerInterface);
+            }
+            Fragment target = getTargetFragment();
+            Bundle args = getArguments();
+            if (target == null && args != null && args.getBoolean(BaseDialogBuilder.ARG_NOTIFY_PARENT_FRAGMENT)) {
+                target = getParentFragment();
+            }
+            mListenerRegistry = new DialogListenerRegistry(target, getActivity());
         }
-        if (getActivity() != null && listenerInterface.isAssignableFrom(getActivity().getClass())) {
-            listeners.add((T) getActivity());
+        return mListenerRegistry.getListeners(listenerInterface, mRequestCode);
+    }
+
+    /**
+     * @return activity or target fragment the dialog is shown for, set by the builder and known only until the dialog
+     * is attached, null otherwise
+     */
+    protected LifecycleOwner getShowHost() {
+        return mShowHost;
+    }
+
+    void setShowHost(LifecycleOwner showHost) {
+        mShowHost = showHost;
+    }
+
+    private int resolveRequestCode() {
+        if (getTargetFragment() != null) {
+            return getTargetRequestCode();
         }
-        return Collections.unmodifiableList(listeners);
+        Bundle args = getArguments();
+        return args != null ? args.getInt(BaseDialogBuilder.ARG_REQUEST_CODE, 0) : 0;
+    }
+
+    /**
+     * Listeners resolved from the host the same way as from an attached dialog, e.g. for a result which arrives
+     * before the dialog is shown.
+     */
+    private <T> List<T> getShowHostListeners(Class<T> listenerInterface) {
+        if (mShowHost == null) {
+            return Collections.emptyList();
+        }
+        mRequestCode = resolveRequestCode();
+        DialogListenerRegistry registry;
+        if (mShowHost instanceof Fragment) {
+            registry = new DialogListenerRegistry(mShowHost, ((Fragment) mShowHost).getActivity());
+        } else {
+            registry = new DialogListenerRegistry(null, mShowHost);
+        }
+        return registry.getListeners(listenerInterface, mRequestCode);
     }
 
     /**
      * Button divider should be shown only if the content is scrollable.
+     *
+     * @return true if visibility of the divider changed
      */
-    private void modifyButtonsBasedOnScrollableContent(boolean scrollable) {
-        if (getView() == null) {
-            return;
-        }
-        View vButtonDivider = getView().findViewById(R.id.sdl_button_divider);
-        View vButtonsBottomSpace = getView().findViewById(R.id.sdl_buttons_bottom_space);
-        View vDefaultButtons = getView().findViewById(R.id.sdl_buttons_default);
-        View vStackedButtons = getView().findViewById(R.id.sdl_buttons_stacked);
-        if (vDefaultButtons.getVisibility() == View.GONE && vStackedButtons.getVisibility() == View.GONE) {
-            // no buttons
-            vButtonDivider.setVisibility(View.GONE);
-            vButtonsBottomSpace.setVisibility(View.GONE);
-        } else if (scrollable) {
+    private boolean modifyButtonsBasedOnScrollableContent(boolean scrollable) {
+        // button bars which were never inflated are still stubs and don't count
+        if (mViewHolder.buttons == null) {
+            // no buttons, Builder.create() has already hidden both
+            return false;
+        }
+        View vButtonDivider = mViewHolder.buttonDivider;
+        View vButtonsBottomSpace = mViewHolder.buttonsBottomSpace;
+        boolean changed = (vButtonDivider.getVisibility() == View.VISIBLE) != scrollable;
+        if (scrollable) {
             vButtonDivider.setVisibility(View.VISIBLE);
             vButtonsBottomSpace.setVisibility(View.GONE);
         } else {
             vButtonDivider.setVisibility(View.GONE);
             vButtonsBottomSpace.setVisibility(View.VISIBLE);
         }
+        return changed;
     }
 
-    private boolean isScrollable(ViewGroup listView) {
-        int totalHeight = 0;
-        for (int i = 0; i < listView.getChildCount(); i++) {
-            totalHeight += listView.getChildAt(i).getMeasuredHeight();
+    /**
+     * Uses scroll range of the content containers themselves, so it works for lists with more items than visible
+     * rows as well.
+     */
+    private boolean isContentScrollable() {
+        // sections are inflated lazily from stubs, so any of them may be missing
+        if (mViewHolder.custom != null && mViewHolder.custom.getChildCount() > 0
+                && isScrollable(mViewHolder.custom.getChildAt(0))) {
+            return true;
         }
-        return listView.getMeasuredHeight() < totalHeight;
+        return (mViewHolder.list != null && isScrollable(mViewHolder.list))
+                || (mViewHolder.recycler != null && isScrollable(mViewHolder.recycler))
+                || (mViewHolder.messageScrollView != null && isScrollable(mViewHolder.messageScrollView));
+    }
+
+    private static boolean isScrollable(View view) {
+        return view.canScrollVertically(-1) || view.canScrollVertically(1);
     }
 
     /**
@@ -226,7 +353,7 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
         }
 
         // Get the light/dark attribute from the Activity's Theme.
-        boolean useLightTheme = isActivityThemeLight();
+        boolean useLightTheme = DialogThemeCache.isLightTheme(getActivity());
 
         // Now check if developer overrides the Activity's Theme with an argument.
         Bundle args = getArguments();
@@ -244,18 +371,19 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
     }
 
     /**
-     * This method resolves the current theme declared in the manifest
+     * This method resolves the current theme declared in the manifest.
+     * Use {@link DialogThemeCache#isLightTheme(Context)} which caches the result.
      */
-    private boolean isActivityThemeLight() {
+    static boolean isActivityThemeLight(Context activity) {
         try {
             TypedValue val = new TypedValue();
 
             //Reading attr value from current theme
-            getActivity().getTheme().resolveAttribute(R.attr.isLightTheme, val, true);
+            activity.getTheme().resolveAttribute(R.attr.isLightTheme, val, true);
 
             //Passing the resource ID to TypedArray to get the attribute value
             TypedArray styledAttributes =
-                    getActivity().obtainStyledAttributes(val.data, new int[]{R.attr.isLightTheme});
+                    activity.obtainStyledAttributes(val.data, new int[]{R.attr.isLightTheme});
             boolean lightTheme = styledAttributes.getBoolean(0, false);
             styledAttributes.recycle();
 
@@ -305,10 +433,30 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
 
         private AdapterView.OnItemClickListener mOnItemClickListener;
 
+        private RecyclerView.Adapter<?> mRecyclerAdapter;
+
+        private CharSequence mSearchHint;
+
+        private TextWatcher mSearchWatcher;
+
+        /**
+         * Theme of the dialog, used to pick a pre-inflated shell from {@link DialogShellPool}
+         */
+        @StyleRes
+        private int mShellTheme;
+
+        /**
+         * Inflates the dialog layout, the fragment's inflater is kept for custom views
+         */
+        private LayoutInflater mShellInflater;
+
+        private DialogViewHolder mViewHolder;
+
         public Builder(Context context, LayoutInflater inflater, ViewGroup container) {
             this.mContext = context;
             this.mContainer = container;
             this.mInflater = inflater;
+            this.mShellInflater = inflater;
         }
 
         public LayoutInflater getLayoutInflater() {
@@ -394,6 +542,28 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
             return this;
         }
 
+        /**
+         * Set list backed by a RecyclerView instead of a ListView. The adapter is responsible for clicks and checked
+         * state. The list doesn't change its size when the adapter content changes, items are prefetched while
+         * scrolling.
+         */
+        public Builder setItems(RecyclerView.Adapter<?> adapter) {
+            mRecyclerAdapter = adapter;
+            return this;
+        }
+
+        /**
+         * Show a search field above the list.
+         *
+         * @param hint    hint of the field
+         * @param watcher notified when the query changes, also when the field restores its text
+         */
+        public Builder setSearch(CharSequence hint, TextWatcher watcher) {
+            mSearchHint = hint;
+            mSearchWatcher = watcher;
+            return this;
+        }
+
         public Builder setView(View view) {
             mCustomView = view;
             return this;
@@ -401,31 +571,43 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
 
         public View create() {
 
-            LinearLayout content = (LinearLayout) mInflater.inflate(R.layout.sdl_dialog, mContainer, false);
-            TextView vTitle = (TextView) content.findViewById(R.id.sdl_title);
-            TextView vMessage = (TextView) content.findViewById(R.id.sdl_message);
-            FrameLayout vCustomView = (FrameLayout) content.findViewById(R.id.sdl_custom);
-            Button vPositiveButton = (Button) content.findViewById(R.id.sdl_button_positive);
-            Button vNegativeButton = (Button) content.findViewById(R.id.sdl_button_negative);
-            Button vNeutralButton = (Button) content.findViewById(R.id.sdl_button_neutral);
-            Button vPositiveButtonStacked = (Button) content.findViewById(R.id.sdl_button_positive_stacked);
-            Button vNegativeButtonStacked = (Button) content.findViewById(R.id.sdl_button_negative_stacked);
-            Button vNeutralButtonStacked = (Button) content.findViewById(R.id.sdl_button_neutral_stacked);
-            View vButtonsDefault = content.findViewById(R.id.sdl_buttons_default);
-            View vButtonsStacked = content.findViewById(R.id.sdl_buttons_stacked);
-            ListView vList = (ListView) content.findViewById(R.id.sdl_list);
-
-            Typeface regularFont = TypefaceHelper.get(mContext, "Roboto-Regular");
-            Typeface mediumFont = TypefaceHelper.get(mContext, "Roboto-Medium");
-
-            set(vTitle, mTitle, mediumFont);
-            set(vMessage, mMessage, regularFont);
-            setPaddingOfTitleAndMessage(vTitle, vMessage);
+            View content = inflateShell();
+            DialogViewHolder holder = new DialogViewHolder(content);
+            mViewHolder = holder;
+
+            FontSource fontSource = TypefaceHelper.getFontSource();
+            Typeface regularFont = fontSource.getRegular(mContext);
+            Typeface mediumFont = fontSource.getMedium(mContext);
+
+            set(holder.title, mTitle, mediumFont);
+
+            // every other section is a stub, inflate only those we have content for
+            if (mMessage != null) {
+                set(holder.inflateMessage(), mMessage, regularFont);
+            }
+            setPaddingOfTitleAndMessage(holder.title, holder.message);
 
             if (mCustomView != null) {
-                vCustomView.addView(mCustomView);
+                holder.inflateCustom().addView(mCustomView);
+            }
+            if (mSearchWatcher != null) {
+                EditText vSearch = holder.inflateSearch();
+                vSearch.setHint(mSearchHint);
+                if (regularFont != null) {
+                    vSearch.setTypeface(regularFont);
+                }
+                vSearch.addTextChangedListener(mSearchWatcher);
+            }
+            if (mRecyclerAdapter != null) {
+                RecyclerView vRecycler = holder.inflateRecycler();
+                LinearLayoutManager layoutManager = new LinearLayoutManager(mContext);
+                layoutManager.setItemPrefetchEnabled(true);
+                vRecycler.setLayoutManager(layoutManager);
+                vRecycler.setHasFixedSize(true);
+                vRecycler.setAdapter(mRecyclerAdapter);
             }
             if (mListAdapter != null) {
+                ListView vList = holder.inflateList();
                 vList.setAdapter(mListAdapter);
                 vList.setOnItemClickListener(mOnItemClickListener);
                 if (mListCheckedItemIdx != -1) {
@@ -439,27 +621,31 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
                 }
             }
 
-            if (shouldStackButtons()) {
-                set(vPositiveButtonStacked, mPositiveButtonText, mediumFont, mPositiveButtonListener);
-                set(vNegativeButtonStacked, mNegativeButtonText, mediumFont, mNegativeButtonListener);
-                set(vNeutralButtonStacked, mNeutralButtonText, mediumFont, mNeutralButtonListener);
-                vButtonsDefault.setVisibility(View.GONE);
-                vButtonsStacked.setVisibility(View.VISIBLE);
-            } else {
-                set(vPositiveButton, mPositiveButtonText, mediumFont, mPositiveButtonListener);
-                set(vNegativeButton, mNegativeButtonText, mediumFont, mNegativeButtonListener);
-                set(vNeutralButton, mNeutralButtonText, mediumFont, mNeutralButtonListener);
-                vButtonsDefault.setVisibility(View.VISIBLE);
-                vButtonsStacked.setVisibility(View.GONE);
-            }
             if (TextUtils.isEmpty(mPositiveButtonText) && TextUtils.isEmpty(mNegativeButtonText) && TextUtils.isEmpty
                     (mNeutralButtonText)) {
-                vButtonsDefault.setVisibility(View.GONE);
+                // no buttons, neither of the button bars nor the space below them is needed
+                holder.buttonsBottomSpace.setVisibility(View.GONE);
+                return content;
             }
+            holder.inflateButtons();
+            set(holder.positiveButton, mPositiveButtonText, mediumFont, mPositiveButtonListener);
+            set(holder.negativeButton, mNegativeButtonText, mediumFont, mNegativeButtonListener);
+            set(holder.neutralButton, mNeutralButtonText, mediumFont, mNeutralButtonListener);
 
             return content;
         }
 
+        private View inflateShell() {
+            DialogShellPool pool = DialogShellPool.getInstance();
+            if (pool != null && mShellTheme != 0 && mContainer == null) {
+                View shell = pool.acquire(mContext, mShellTheme);
+                if (shell != null) {
+                    return shell;
+                }
+            }
+            return mShellInflater.inflate(R.layout.sdl_dialog, mContainer, false);
+        }
+
         /**
          * Padding is different if there is only title, only message or both.
          */
@@ -470,22 +656,14 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
                 vTitle.setPadding(grid6, grid6, grid6, grid4);
                 vMessage.setPadding(grid6, 0, grid6, grid4);
             } else if (TextUtils.isEmpty(mTitle)) {
-                vMessage.setPadding(grid6, grid4, grid6, grid4);
+                if (vMessage != null) {
+                    vMessage.setPadding(grid6, grid4, grid6, grid4);
+                }
             } else if (TextUtils.isEmpty(mMessage)) {
                 vTitle.setPadding(grid6, grid6, grid6, grid4);
             }
         }
 
-        private boolean shouldStackButtons() {
-            return shouldStackButton(mPositiveButtonText) || shouldStackButton(mNegativeButtonText)
-                    || shouldStackButton(mNeutralButtonText);
-        }
-
-        private boolean shouldStackButton(CharSequence text) {
-            final int MAX_BUTTON_CHARS = 12; // based on observation, could be done better with measuring widths
-            return text != null && text.length() > MAX_BUTTON_CHARS;
-        }
-
         private void set(Button button, CharSequence text, Typeface font, View.OnClickListener listener) {
             set(button, text, font);
             if (listener != null) {
@@ -496,7 +674,9 @@ public abstract class BaseDialogFragment extends DialogFragment implements Dialo
         private void set(TextView textView, CharSequence text, Typeface font) {
             if (text != null) {
                 textView.setText(text);
-                textView.setTypeface(font);
+                if (font != null) {
+                    textView.setTypeface(font);
+                }
             } else {
                 textView.setVisibility(View.GONE);
             }
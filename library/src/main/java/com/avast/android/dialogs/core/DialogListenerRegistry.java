@@ -0,0 +1,168 @@
+package com.avast.android.dialogs.core;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import android.util.SparseArray;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.collection.SimpleArrayMap;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+/**
+ * Listeners of one attached dialog fragment.
+ * <p>
+ * Candidates are the target fragment, the activity and handlers {@link #register(int, Object) registered} for the
+ * dialog's request code by owners which are not part of the UI. The parent fragment of a dialog shown from a child
+ * fragment manager is a candidate only when enabled with {@link BaseDialogBuilder#setNotifyParentFragment(boolean)}.
+ * Listeners of each interface are resolved on first use and the result is reused until the fragment detaches, so
+ * dispatching an event doesn't allocate.
+ */
+public final class DialogListenerRegistry {
+
+    /**
+     * Handlers are held weakly, a handler which isn't unregistered doesn't leak
+     */
+    private static final SparseArray<ArrayList<WeakReference<Object>>> sHandlers = new SparseArray<>();
+
+    /**
+     * Bumped on every change of sHandlers, registries resolved earlier resolve again.
+     */
+    private static int sHandlersVersion;
+
+    private final Object[] mCandidates;
+
+    private final SimpleArrayMap<Class<?>, List<?>> mResolved = new SimpleArrayMap<>();
+
+    private int mResolvedVersion = sHandlersVersion;
+
+    private int mResolvedRequestCode;
+
+    DialogListenerRegistry(@Nullable Object targetFragment, @Nullable Object activity) {
+        mCandidates = new Object[]{targetFragment, activity};
+    }
+
+    /**
+     * Register handler for dialogs with given request code, useful for owners which are neither a fragment nor an
+     * activity. Handler receives events of all listener interfaces it implements. It's held weakly, keep a reference
+     * to it as long as it should receive events, and {@link #unregister(int, Object)} it when done.
+     */
+    @MainThread
+    public static void register(int requestCode, Object handler) {
+        ArrayList<WeakReference<Object>> handlers = sHandlers.get(requestCode);
+        if (handlers == null) {
+            handlers = new ArrayList<>(1);
+            sHandlers.put(requestCode, handlers);
+        }
+        if (indexOf(handlers, handler) == -1) {
+            handlers.add(new WeakReference<>(handler));
+            sHandlersVersion++;
+        }
+    }
+
+    /**
+     * Register handler until the owner is destroyed.
+     *
+     * @see #register(int, Object)
+     */
+    @MainThread
+    public static void register(@NonNull LifecycleOwner owner, final int requestCode, final Object handler) {
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+        register(requestCode, handler);
+        owner.getLifecycle().addObserver(new LifecycleEventObserver() {
+            @Override
+            public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                if (event == Lifecycle.Event.ON_DESTROY) {
+                    source.getLifecycle().removeObserver(this);
+                    unregister(requestCode, handler);
+                }
+            }
+        });
+    }
+
+    @MainThread
+    public static void unregister(int requestCode, Object handler) {
+        ArrayList<WeakReference<Object>> handlers = sHandlers.get(requestCode);
+        if (handlers == null) {
+            return;
+        }
+        int index = indexOf(handlers, handler);
+        if (index != -1) {
+            handlers.remove(index);
+            if (handlers.isEmpty()) {
+                sHandlers.remove(requestCode);
+            }
+            sHandlersVersion++;
+        }
+    }
+
+    /**
+     * @param requestCode current request code of the dialog
+     * @return unmodifiable list of listeners implementing given interface, the same instance until handlers or the
+     * request code change
+     */
+    @SuppressWarnings("unchecked")
+    <T> List<T> getListeners(Class<T> listenerInterface, int requestCode) {
+        if (mResolvedVersion != sHandlersVersion || mResolvedRequestCode != requestCode) {
+            mResolved.clear();
+            mResolvedVersion = sHandlersVersion;
+            mResolvedRequestCode = requestCode;
+        }
+        List<?> listeners = mResolved.get(listenerInterface);
+        if (listeners == null) {
+            listeners = resolve(listenerInterface, requestCode);
+            mResolved.put(listenerInterface, listeners);
+        }
+        return (List<T>) listeners;
+    }
+
+    private <T> List<T> resolve(Class<T> listenerInterface, int requestCode) {
+        List<T> listeners = new ArrayList<>(2);
+        for (Object candidate : mCandidates) {
+            add(listeners, listenerInterface, candidate);
+        }
+        ArrayList<WeakReference<Object>> handlers = sHandlers.get(requestCode);
+        if (handlers != null) {
+            for (int i = 0; i < handlers.size(); i++) {
+                add(listeners, listenerInterface, handlers.get(i).get());
+            }
+        }
+        if (listeners.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(listeners);
+    }
+
+    /**
+     * Also drops handlers which were collected in the meantime.
+     */
+    private static int indexOf(ArrayList<WeakReference<Object>> handlers, Object handler) {
+        int index = -1;
+        for (int i = handlers.size() - 1; i >= 0; i--) {
+            Object registered = handlers.get(i).get();
+            if (registered == null) {
+                handlers.remove(i);
+                if (index != -1) {
+                    index--;
+                }
+            } else if (registered == handler) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private static <T> void add(List<T> listeners, Class<T> listenerInterface, @Nullable Object candidate) {
+        if (listenerInterface.isInstance(candidate) && !listeners.contains(candidate)) {
+            listeners.add(listenerInterface.cast(candidate));
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.avast.android.dialogs.core;
+
+import java.lang.ref.WeakReference;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+/**
+ * Shows dialogs one at a time. Requests can be posted from any thread, they are collected once per frame on the main
+ * thread and shown by priority, in order of posting within the same priority.
+ * <p>
+ * A request for a dialog with the same tag and request code as a pending one for the same host, or as the shown one,
+ * is dropped, so a burst of the same error shows a single dialog. See {@link #getCoalescedCount()}.
+ * <p>
+ * Pending requests belong to their host, the target fragment or the activity given to the builder as the context. They
+ * are dropped when the host is destroyed, also by a configuration change, so the scheduler never keeps a destroyed
+ * host alive. See {@link #getDroppedCount()}. Requests of a builder created with a context which isn't a
+ * {@link LifecycleOwner} are dropped only once their turn comes and their fragment manager is destroyed.
+ * <p>
+ * A shown dialog which is destroyed without finishing and isn't recreated, e.g. committed after its host saved its
+ * state, frees its turn when the next request arrives.
+ */
+public final class DialogScheduler {
+
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_DEFAULT = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    /**
+     * Identifies a dialog shown by the scheduler, survives configuration changes of the dialog
+     */
+    static final String ARG_SCHEDULED_ID = "scheduled_id";
+
+    private static final DialogScheduler sInstance = new DialogScheduler();
+
+    private static final class Request {
+
+        final BaseDialogBuilder<?> builder;
+
+        final int priority;
+
+        // assigned on the main thread
+        long sequence;
+
+        Host host;
+
+        Request(BaseDialogBuilder<?> builder, int priority) {
+            this.builder = builder;
+            this.priority = priority;
+        }
+
+        String getKey() {
+            return builder.getRequestCode() + ":" + builder.getTag();
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Request> mPosted = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // main thread only
+    private final PriorityQueue<Request> mPending = new PriorityQueue<>(11, new Comparator<Request>() {
+        @Override
+        public int compare(Request r1, Request r2) {
+            if (r1.priority != r2.priority) {
+                return r1.priority > r2.priority ? -1 : 1;
+            }
+            return r1.sequence < r2.sequence ? -1 : (r1.sequence == r2.sequence ? 0 : 1);
+        }
+    });
+
+    /**
+     * Hosts with pending requests, by their lifecycle owner or their fragment manager when there is none
+     */
+    private final HashMap<Object, Host> mHosts = new HashMap<>();
+
+    private long mSequence;
+
+    private String mShownKey;
+
+    private String mShownId;
+
+    /**
+     * The latest instance of the shown dialog, a dialog recreated after a configuration change replaces it
+     */
+    private WeakReference<BaseDialogFragment> mShownFragment;
+
+    // written on the main thread only
+    private volatile int mCoalescedCount;
+
+    // written on the main thread only
+    private volatile int mDroppedCount;
+
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    private final Object mFrameCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+            ? createFrameCallback() : null;
+
+    private final Runnable mPostFrameCallback = new Runnable() {
+        @Override
+        public void run() {
+            postFrameCallback();
+        }
+    };
+
+    private DialogScheduler() {
+    }
+
+    public static DialogScheduler getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Show the dialog once the ones posted before it, or with higher priority, are dismissed. Can be called from any
+     * thread, the builder must not be changed afterwards.
+     */
+    public void post(BaseDialogBuilder<?> builder, int priority) {
+        mPosted.add(new Request(builder, priority));
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            if (mFrameCallback == null) {
+                mHandler.post(mDrain);
+            } else if (Looper.myLooper() == Looper.getMainLooper()) {
+                postFrameCallback();
+            } else {
+                // Choreographer belongs to the thread which gets it
+                mHandler.post(mPostFrameCallback);
+            }
+        }
+    }
+
+    /**
+     * @return number of requests dropped because the same dialog was already pending or shown
+     */
+    public int getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+    /**
+     * @return number of requests dropped because their host or fragment manager was destroyed before their turn
+     */
+    public int getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * Called by every dialog when it's created, also when it's recreated from the saved state.
+     */
+    void onDialogCreated(BaseDialogFragment fragment) {
+        if (mShownId != null && mShownId.equals(getScheduledId(fragment))) {
+            mShownFragment = new WeakReference<>(fragment);
+        }
+    }
+
+    /**
+     * Called by the dialog when it's gone for good.
+     */
+    void onDialogFinished(BaseDialogFragment fragment) {
+        String id = getScheduledId(fragment);
+        if (id != null && id.equals(mShownId)) {
+            releaseShown();
+            showNext();
+        }
+    }
+
+    private static String getScheduledId(BaseDialogFragment fragment) {
+        Bundle args = fragment.getArguments();
+        return args != null ? args.getString(ARG_SCHEDULED_ID) : null;
+    }
+
+    private void releaseShown() {
+        mShownKey = null;
+        mShownId = null;
+        mShownFragment = null;
+    }
+
+    /**
+     * A dialog can be destroyed without being removed and without coming back, e.g. when it was committed after the
+     * host saved its state and the host is recreated, or when its parent fragment is removed. It never reports that
+     * it finished then.
+     */
+    private boolean isShownLost() {
+        BaseDialogFragment fragment = mShownFragment != null ? mShownFragment.get() : null;
+        return fragment == null || fragment.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Object createFrameCallback() {
+        return new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                drain();
+            }
+        };
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+    private void drain() {
+        // cleared first, a request posted from now on schedules another drain
+        mDrainScheduled.set(false);
+        Request request;
+        while ((request = mPosted.poll()) != null) {
+            enqueue(request);
+        }
+        if (mShownId != null && isShownLost()) {
+            releaseShown();
+        }
+        if (mShownId == null) {
+            showNext();
+        }
+    }
+
+    private void enqueue(Request request) {
+        LifecycleOwner owner = request.builder.getHost();
+        if ((owner != null && owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED)
+                || request.builder.getFragmentManager().isDestroyed()) {
+            mDroppedCount++;
+            return;
+        }
+        Host host = getHost(request.builder);
+        String key = request.getKey();
+        Request pending = host.pending.get(key);
+        if (key.equals(mShownKey) || (pending != null && pending.priority >= request.priority)) {
+            mCoalescedCount++;
+            releaseIfIdle(host);
+            return;
+        }
+        if (pending != null) {
+            // the same dialog with higher priority, it keeps its place in the order of posting
+            mPending.remove(pending);
+            mCoalescedCount++;
+            request.sequence = pending.sequence;
+        } else {
+            request.sequence = mSequence++;
+        }
+        request.host = host;
+        mPending.add(request);
+        host.pending.put(key, request);
+    }
+
+    private Host getHost(BaseDialogBuilder<?> builder) {
+        LifecycleOwner owner = builder.getHost();
+        Object hostKey = owner != null ? owner : builder.getFragmentManager();
+        Host host = mHosts.get(hostKey);
+        if (host == null) {
+            host = new Host(hostKey, owner);
+            mHosts.put(hostKey, host);
+            if (owner != null) {
+                owner.getLifecycle().addObserver(host);
+            }
+        }
+        return host;
+    }
+
+    /**
+     * Forget the host once it has no pending requests, so it isn't referenced anymore.
+     */
+    private void releaseIfIdle(Host host) {
+        if (host.pending.isEmpty() && mHosts.remove(host.key) != null && host.owner != null) {
+            host.owner.getLifecycle().removeObserver(host);
+        }
+    }
+
+    private void showNext() {
+        Request request;
+        while ((request = mPending.poll()) != null) {
+            String key = request.getKey();
+            request.host.pending.remove(key);
+            releaseIfIdle(request.host);
+            BaseDialogBuilder<?> builder = request.builder;
+            FragmentManager fragmentManager = builder.getFragmentManager();
+            if (fragmentManager.isDestroyed()) {
+                mDroppedCount++;
+                continue;
+            }
+            if (isShown(fragmentManager, builder)) {
+                // shown directly, not through the scheduler
+                mCoalescedCount++;
+                continue;
+            }
+            BaseDialogFragment fragment = builder.create();
+            String id = UUID.randomUUID().toString();
+            fragment.getArguments().putString(ARG_SCHEDULED_ID, id);
+            mShownKey = key;
+            mShownId = id;
+            mShownFragment = new WeakReference<>(fragment);
+            // the activity might be stopped, the dialog is shown when it's back
+            if (fragmentManager.isStateSaved()) {
+                fragment.showAllowingStateLoss(fragmentManager, builder.getTag());
+            } else {
+                fragment.show(fragmentManager, builder.getTag());
+            }
+            return;
+        }
+    }
+
+    /**
+     * Pending requests of one host, they are dropped when it's destroyed.
+     */
+    private final class Host implements LifecycleEventObserver {
+
+        final Object key;
+
+        final LifecycleOwner owner;
+
+        final HashMap<String, Request> pending = new HashMap<>();
+
+        Host(Object key, LifecycleOwner owner) {
+            this.key = key;
+            this.owner = owner;
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            if (event != Lifecycle.Event.ON_DESTROY) {
+                return;
+            }
+            for (Request request : pending.values()) {
+                mPending.remove(request);
+                mDroppedCount++;
+            }
+            pending.clear();
+            releaseIfIdle(this);
+        }
+    }
+
+    private static boolean isShown(FragmentManager fragmentManager, BaseDialogBuilder<?> builder) {
+        Fragment fragment = fragmentManager.findFragmentByTag(builder.getTag());
+        if (!(fragment instanceof BaseDialogFragment) || fragment.isRemoving()) {
+            return false;
+        }
+        if (fragment.getTargetFragment() != null) {
+            return fragment.getTargetRequestCode() == builder.getRequestCode();
+        }
+        Bundle args = fragment.getArguments();
+        return args != null && args.getInt(BaseDialogBuilder.ARG_REQUEST_CODE) == builder.getRequestCode();
+    }
+}
@@ -0,0 +1,333 @@
+package com.avast.android.dialogs.core;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
+import androidx.appcompat.app.AppCompatDelegate;
+import androidx.appcompat.widget.AppCompatTextView;
+
+import com.avast.android.dialogs.R;
+
+/**
+ * Opt-in pool of dialog shells ({@code R.layout.sdl_dialog}) inflated on a background thread, so the first dialog
+ * shown after a cold start doesn't pay for the inflation on the main thread.
+ * <p>
+ * Shells are kept per activity and per dialog theme ({@code SDL_Dialog} / {@code SDL_Dark_Dialog}).
+ * {@link BaseDialogFragment.Builder#create()} takes a shell from the pool when one is ready and falls back to
+ * synchronous inflation when it's not. Every shell taken from the pool is refilled in the background, up to the
+ * configured size. Shells of an activity are dropped when the activity is destroyed, the pool holds activities
+ * weakly.
+ * <p>
+ * The activity's layout inflater factory isn't safe to use off the main thread. The shell contains a single view
+ * AppCompat swaps, the title {@code TextView}, so for activities using AppCompat's factory it's created as
+ * {@link AppCompatTextView} directly, like the factory does. Custom view inflaters set with AppCompat's
+ * {@code viewInflaterClass} theme attribute are not applied to the shell. Sections of the dialog which are inflated
+ * later from stubs use the regular inflater.
+ */
+public final class DialogShellPool {
+
+    public static final int DEFAULT_MAX_SIZE = 1;
+
+    private static volatile DialogShellPool sInstance;
+
+    private final Application mApplication;
+
+    private final int mMaxSize;
+
+    private final ExecutorService mExecutor;
+
+    private final List<Shell> mShells = new ArrayList<>();
+
+    private final Application.ActivityLifecycleCallbacks mLifecycleCallbacks = new ActivityDestroyedCallbacks() {
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            evict(activity);
+        }
+    };
+
+    private DialogShellPool(Application application, int maxSize) {
+        mApplication = application;
+        mMaxSize = maxSize;
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "sdl-shell-inflater");
+            }
+        });
+    }
+
+    /**
+     * Enable the pool with {@link #DEFAULT_MAX_SIZE} shells per activity and theme.
+     */
+    @MainThread
+    public static DialogShellPool enable(Application application) {
+        return enable(application, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Enable the pool.
+     *
+     * @param maxSize maximal number of ready shells kept per activity and dialog theme
+     * @return the pool, use it to {@link #prefill(Activity)} shells ahead of time
+     */
+    @MainThread
+    public static DialogShellPool enable(Application application, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        disable();
+        DialogShellPool pool = new DialogShellPool(application, maxSize);
+        application.registerActivityLifecycleCallbacks(pool.mLifecycleCallbacks);
+        sInstance = pool;
+        return pool;
+    }
+
+    /**
+     * Disable the pool and drop all shells. Dialogs are inflated synchronously again.
+     */
+    @MainThread
+    public static void disable() {
+        DialogShellPool pool = sInstance;
+        if (pool != null) {
+            sInstance = null;
+            pool.mApplication.unregisterActivityLifecycleCallbacks(pool.mLifecycleCallbacks);
+            pool.mExecutor.shutdownNow();
+            synchronized (pool.mShells) {
+                pool.mShells.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the pool or null when it's not enabled
+     */
+    @Nullable
+    public static DialogShellPool getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Start inflating shells for the given activity in the background, using the dialog theme matching the
+     * activity's theme.
+     */
+    @MainThread
+    public void prefill(Activity activity) {
+        prefill(activity, DialogThemeCache.isLightTheme(activity) ? R.style.SDL_Dialog : R.style.SDL_Dark_Dialog);
+    }
+
+    /**
+     * Start inflating shells for the given activity and dialog theme in the background.
+     */
+    @MainThread
+    public void prefill(Activity activity, @StyleRes int theme) {
+        synchronized (mShells) {
+            fill(activity, theme);
+        }
+    }
+
+    /**
+     * Take a ready shell out of the pool. The pool is refilled in the background up to its size, also after a miss.
+     *
+     * @param context context the dialog is created for, shells exist only for activities
+     * @return the shell or null when there is no shell ready
+     */
+    @MainThread
+    @Nullable
+    View acquire(Context context, @StyleRes int theme) {
+        if (!(context instanceof Activity)) {
+            return null;
+        }
+        Activity activity = (Activity) context;
+        View shell = null;
+        synchronized (mShells) {
+            for (int i = 0; i < mShells.size(); i++) {
+                Shell candidate = mShells.get(i);
+                if (candidate.matches(activity, theme) && candidate.view != null) {
+                    mShells.remove(i);
+                    shell = candidate.view;
+                    break;
+                }
+            }
+            // this also makes the next dialog in this activity fast when we missed now
+            fill(activity, theme);
+        }
+        return shell;
+    }
+
+    private void evict(Activity activity) {
+        synchronized (mShells) {
+            for (int i = mShells.size() - 1; i >= 0; i--) {
+                Activity shellActivity = mShells.get(i).activity.get();
+                if (shellActivity == null || shellActivity == activity) {
+                    mShells.remove(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedule shells missing to the pool size, ready and pending ones count. Must be called on the main thread with
+     * mShells locked.
+     */
+    private void fill(Activity activity, @StyleRes int theme) {
+        int count = 0;
+        for (int i = 0; i < mShells.size(); i++) {
+            if (mShells.get(i).matches(activity, theme)) {
+                count++;
+            }
+        }
+        for (; count < mMaxSize; count++) {
+            schedule(activity, theme);
+        }
+    }
+
+    /**
+     * Must be called on the main thread with mShells locked.
+     */
+    private void schedule(Activity activity, @StyleRes int theme) {
+        if (activity.isFinishing() || mExecutor.isShutdown()) {
+            return;
+        }
+        final Shell shell = new Shell(activity, theme);
+        final Context themedContext = DialogThemeCache.getThemedContext(activity, theme);
+        final boolean appCompat = LayoutInflater.from(activity).getFactory2() instanceof AppCompatDelegate;
+        mShells.add(shell);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                synchronized (mShells) {
+                    if (!mShells.contains(shell)) {
+                        // evicted in the meantime
+                        return;
+                    }
+                }
+                LayoutInflater inflater = new BasicInflater(themedContext);
+                if (appCompat) {
+                    inflater.setFactory2(new AppCompatShellFactory());
+                }
+                View view = inflater.inflate(R.layout.sdl_dialog, null, false);
+                synchronized (mShells) {
+                    shell.view = view;
+                }
+            }
+        });
+    }
+
+    private static class Shell {
+
+        final WeakReference<Activity> activity;
+
+        @StyleRes
+        final int theme;
+
+        View view;
+
+        Shell(Activity activity, @StyleRes int theme) {
+            this.activity = new WeakReference<>(activity);
+            this.theme = theme;
+        }
+
+        boolean matches(Activity activity, @StyleRes int theme) {
+            return this.activity.get() == activity && this.theme == theme;
+        }
+    }
+
+    /**
+     * Plain inflater without any factory, based on the one used by AsyncLayoutInflater.
+     */
+    private static class BasicInflater extends LayoutInflater {
+
+        private static final String[] sClassPrefixList = {
+                "android.widget.",
+                "android.webkit.",
+                "android.app."
+        };
+
+        BasicInflater(Context context) {
+            super(context);
+        }
+
+        @Override
+        public LayoutInflater cloneInContext(Context newContext) {
+            return new BasicInflater(newContext);
+        }
+
+        @Override
+        protected View onCreateView(String name, AttributeSet attrs) throws ClassNotFoundException {
+            for (String prefix : sClassPrefixList) {
+                try {
+                    View view = createView(name, prefix, attrs);
+                    if (view != null) {
+                        return view;
+                    }
+                } catch (ClassNotFoundException e) {
+                    // try the next prefix
+                }
+            }
+            return super.onCreateView(name, attrs);
+        }
+    }
+
+    /**
+     * Creates the views of the shell AppCompat's factory would replace, safe to use off the main thread.
+     */
+    private static class AppCompatShellFactory implements LayoutInflater.Factory2 {
+
+        @Override
+        public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+            return onCreateView(name, context, attrs);
+        }
+
+        @Override
+        public View onCreateView(String name, Context context, AttributeSet attrs) {
+            if ("TextView".equals(name)) {
+                return new AppCompatTextView(context, attrs);
+            }
+            return null;
+        }
+    }
+
+    private abstract static class ActivityDestroyedCallbacks implements Application.ActivityLifecycleCallbacks {
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+    }
+}
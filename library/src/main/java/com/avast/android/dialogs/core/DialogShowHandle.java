@@ -0,0 +1,59 @@
+package com.avast.android.dialogs.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.DialogFragment;
+
+/**
+ * Dialog being shown by {@link BaseDialogBuilder#showAsync()}. The show can be cancelled until the dialog is
+ * committed.
+ */
+public final class DialogShowHandle {
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_COMMITTED = 2;
+
+    private final AtomicInteger mState = new AtomicInteger(STATE_PENDING);
+
+    // main thread only
+    private DialogFragment mDialog;
+
+    DialogShowHandle() {
+    }
+
+    /**
+     * Cancel the show, can be called from any thread.
+     *
+     * @return true when the dialog won't be shown, false when it's already committed
+     */
+    public boolean cancel() {
+        return mState.compareAndSet(STATE_PENDING, STATE_CANCELLED) || mState.get() == STATE_CANCELLED;
+    }
+
+    public boolean isCancelled() {
+        return mState.get() == STATE_CANCELLED;
+    }
+
+    /**
+     * @return the committed dialog, null while it's pending or when the show was cancelled
+     */
+    @MainThread
+    @Nullable
+    public DialogFragment getDialog() {
+        return mDialog;
+    }
+
+    /**
+     * @return true when the dialog should be committed now, false when the show was cancelled
+     */
+    boolean commit() {
+        return mState.compareAndSet(STATE_PENDING, STATE_COMMITTED);
+    }
+
+    void setDialog(DialogFragment dialog) {
+        mDialog = dialog;
+    }
+}
@@ -0,0 +1,174 @@
+package com.avast.android.dialogs.core;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.util.SparseBooleanArray;
+
+import androidx.annotation.MainThread;
+import androidx.fragment.app.DialogFragment;
+import androidx.fragment.app.FragmentManager;
+
+import com.avast.android.dialogs.iface.IDialogFragmentSupplier;
+import com.avast.android.dialogs.util.SparseBooleanArrayParcelable;
+
+/**
+ * Immutable dialog built once with {@link BaseDialogBuilder#toTemplate()} and shown any number of times. Arguments are
+ * prepared once into a frozen prototype, every dialog gets a shallow copy of it, so resources aren't resolved again.
+ * Templates can be shared and copied on any thread, {@link #withRequestCode(int)} and {@link #withTag(String)} make
+ * cheap copies sharing the prototype. Dialogs are shown from them on the main thread only.
+ * <p>
+ * Arrays and {@link SparseBooleanArrayParcelable}s in the prototype, e.g. items and checked items of a list dialog,
+ * are copied for every dialog, so a dialog changing them doesn't change the template. Other values are shared by all
+ * dialogs shown from the template, other {@link Parcelable}s and lists must not be changed by the dialog.
+ */
+public final class DialogTemplate {
+
+    private final Class<? extends BaseDialogFragment> mClass;
+
+    private final IDialogFragmentSupplier<? extends BaseDialogFragment> mSupplier;
+
+    /**
+     * Never given out or changed, dialogs get copies
+     */
+    private final Bundle mPrototype;
+
+    /**
+     * Keys of prototype values which are copied for every dialog
+     */
+    private final String[] mMutableKeys;
+
+    private final String mTag;
+
+    private final int mRequestCode;
+
+    private final boolean mCancelable;
+
+    DialogTemplate(Class<? extends BaseDialogFragment> clazz, IDialogFragmentSupplier<? extends BaseDialogFragment> supplier,
+                   Bundle prototype, String tag, int requestCode, boolean cancelable) {
+        // a Bundle is unparcelled lazily, findMutableKeys() does it now so copies never do it concurrently
+        this(clazz, supplier, prototype, findMutableKeys(prototype), tag, requestCode, cancelable);
+    }
+
+    private DialogTemplate(Class<? extends BaseDialogFragment> clazz,
+                           IDialogFragmentSupplier<? extends BaseDialogFragment> supplier, Bundle prototype,
+                           String[] mutableKeys, String tag, int requestCode, boolean cancelable) {
+        mClass = clazz;
+        mSupplier = supplier;
+        mPrototype = prototype;
+        mMutableKeys = mutableKeys;
+        mTag = tag;
+        mRequestCode = requestCode;
+        mCancelable = cancelable;
+    }
+
+    /**
+     * @return copy of the template showing dialogs with given request code
+     */
+    public DialogTemplate withRequestCode(int requestCode) {
+        return new DialogTemplate(mClass, mSupplier, mPrototype, mMutableKeys, mTag, requestCode, mCancelable);
+    }
+
+    /**
+     * @return copy of the template showing dialogs with given tag
+     */
+    public DialogTemplate withTag(String tag) {
+        return new DialogTemplate(mClass, mSupplier, mPrototype, mMutableKeys, tag, mRequestCode, mCancelable);
+    }
+
+    public int getRequestCode() {
+        return mRequestCode;
+    }
+
+    public String getTag() {
+        return mTag;
+    }
+
+    /**
+     * Show a new dialog from the template, call it on the main thread.
+     *
+     * @param messageFormatArgs when given, the message of the template is used as a format string for
+     *                          {@link String#format(Locale, String, Object...)} with the default locale at the time
+     *                          of the call, spans of the message (e.g. bold parts) are lost then
+     */
+    @MainThread
+    public DialogFragment show(FragmentManager fragmentManager, Object... messageFormatArgs) {
+        BaseDialogFragment fragment = create(fragmentManager, messageFormatArgs);
+        fragment.show(fragmentManager, mTag);
+        return fragment;
+    }
+
+    /**
+     * Like {@link #show(FragmentManager, Object...)} but allows the commit to be executed after an activity's state
+     * is saved, see {@link BaseDialogBuilder#showAllowingStateLoss()}.
+     */
+    @MainThread
+    public DialogFragment showAllowingStateLoss(FragmentManager fragmentManager, Object... messageFormatArgs) {
+        BaseDialogFragment fragment = create(fragmentManager, messageFormatArgs);
+        fragment.showAllowingStateLoss(fragmentManager, mTag);
+        return fragment;
+    }
+
+    private BaseDialogFragment create(FragmentManager fragmentManager, Object... messageFormatArgs) {
+        Bundle args = new Bundle(mPrototype);
+        for (String key : mMutableKeys) {
+            putCopy(args, key, args.get(key));
+        }
+        args.putInt(BaseDialogBuilder.ARG_REQUEST_CODE, mRequestCode);
+        if (messageFormatArgs.length > 0) {
+            CharSequence message = args.getCharSequence(BaseDialogBuilder.ARG_MESSAGE);
+            if (message != null) {
+                args.putCharSequence(BaseDialogBuilder.ARG_MESSAGE,
+                        String.format(Locale.getDefault(), message.toString(), messageFormatArgs));
+            }
+        }
+        BaseDialogFragment fragment = BaseDialogBuilder.instantiate(fragmentManager, mClass, mSupplier);
+        fragment.setArguments(args);
+        fragment.setCancelable(mCancelable);
+        return fragment;
+    }
+
+    private static String[] findMutableKeys(Bundle prototype) {
+        ArrayList<String> keys = new ArrayList<>();
+        for (String key : prototype.keySet()) {
+            Object value = prototype.get(key);
+            if (value instanceof SparseBooleanArrayParcelable || (value != null && value.getClass().isArray())) {
+                keys.add(key);
+            }
+        }
+        return keys.toArray(new String[keys.size()]);
+    }
+
+    /**
+     * Replace the value with its copy. Elements of arrays are shared, like other values of the prototype.
+     */
+    private static void putCopy(Bundle args, String key, Object value) {
+        if (value instanceof SparseBooleanArrayParcelable) {
+            args.putParcelable(key, new SparseBooleanArrayParcelable((SparseBooleanArray) value));
+        } else if (value instanceof String[]) {
+            args.putStringArray(key, ((String[]) value).clone());
+        } else if (value instanceof CharSequence[]) {
+            args.putCharSequenceArray(key, ((CharSequence[]) value).clone());
+        } else if (value instanceof Parcelable[]) {
+            args.putParcelableArray(key, ((Parcelable[]) value).clone());
+        } else if (value instanceof int[]) {
+            args.putIntArray(key, ((int[]) value).clone());
+        } else if (value instanceof long[]) {
+            args.putLongArray(key, ((long[]) value).clone());
+        } else if (value instanceof boolean[]) {
+            args.putBooleanArray(key, ((boolean[]) value).clone());
+        } else if (value instanceof float[]) {
+            args.putFloatArray(key, ((float[]) value).clone());
+        } else if (value instanceof double[]) {
+            args.putDoubleArray(key, ((double[]) value).clone());
+        } else if (value instanceof byte[]) {
+            args.putByteArray(key, ((byte[]) value).clone());
+        } else if (value instanceof short[]) {
+            args.putShortArray(key, ((short[]) value).clone());
+        } else if (value instanceof char[]) {
+            args.putCharArray(key, ((char[]) value).clone());
+        }
+    }
+}
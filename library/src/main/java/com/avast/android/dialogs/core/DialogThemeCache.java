@@ -0,0 +1,142 @@
+package com.avast.android.dialogs.core;
+
+import java.util.WeakHashMap;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.SparseArray;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.StyleRes;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+/**
+ * Caches the light/dark decision, themed contexts and their inflaters per activity theme, so repeated dialogs from the
+ * same activity skip all theme attribute work.
+ * <p>
+ * Entries are keyed by the activity's {@link Resources.Theme} instance (there is no public way to get the theme
+ * resource id of an activity). Themed contexts reference the activity, so they are cached only for activities which
+ * are a {@link LifecycleOwner}, their entry is dropped when the activity is destroyed. An entry is also recomputed
+ * when the UI mode changes, so DayNight themes switch correctly. Call {@link #invalidate(Context)} after changing the
+ * activity theme in place with {@code setTheme()}.
+ */
+public final class DialogThemeCache {
+
+    private static final WeakHashMap<Resources.Theme, Entry> sEntries = new WeakHashMap<>();
+
+    private DialogThemeCache() {
+    }
+
+    /**
+     * Drop everything cached for the activity's current theme.
+     */
+    @MainThread
+    public static void invalidate(Context activity) {
+        Entry entry = sEntries.get(activity.getTheme());
+        if (entry != null) {
+            entry.stale = true;
+        }
+    }
+
+    /**
+     * @return true if the activity uses light theme, see {@code R.attr.isLightTheme}
+     */
+    @MainThread
+    static boolean isLightTheme(Context activity) {
+        return getEntry(activity).lightTheme;
+    }
+
+    /**
+     * @return context with the dialog theme applied on top of the activity theme, shared by subsequent calls
+     */
+    @MainThread
+    static Context getThemedContext(Context activity, @StyleRes int theme) {
+        return getThemed(activity, theme).context;
+    }
+
+    /**
+     * @return inflater of {@link #getThemedContext(Context, int)}, it keeps the factory of the activity's inflater
+     */
+    @MainThread
+    static LayoutInflater getLayoutInflater(Context activity, @StyleRes int theme) {
+        return getThemed(activity, theme).inflater;
+    }
+
+    private static Themed getThemed(Context activity, @StyleRes int theme) {
+        Entry entry = getEntry(activity);
+        Themed themed = entry.themed.get(theme);
+        if (themed == null) {
+            themed = new Themed(new ContextThemeWrapper(activity, theme));
+            if (entry.observed) {
+                entry.themed.put(theme, themed);
+            }
+        }
+        return themed;
+    }
+
+    private static Entry getEntry(Context activity) {
+        final Resources.Theme key = activity.getTheme();
+        int uiMode = activity.getResources().getConfiguration().uiMode;
+        Entry entry = sEntries.get(key);
+        if (entry == null || entry.stale || entry.uiMode != uiMode) {
+            boolean observed = entry != null && entry.observed;
+            entry = new Entry(BaseDialogFragment.isActivityThemeLight(activity), uiMode);
+            if (!observed && activity instanceof LifecycleOwner) {
+                Lifecycle lifecycle = ((LifecycleOwner) activity).getLifecycle();
+                if (lifecycle.getCurrentState() != Lifecycle.State.DESTROYED) {
+                    lifecycle.addObserver(new LifecycleEventObserver() {
+                        @Override
+                        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                            if (event == Lifecycle.Event.ON_DESTROY) {
+                                source.getLifecycle().removeObserver(this);
+                                sEntries.remove(key);
+                            }
+                        }
+                    });
+                    observed = true;
+                }
+            }
+            entry.observed = observed;
+            sEntries.put(key, entry);
+        }
+        return entry;
+    }
+
+    private static class Entry {
+
+        final boolean lightTheme;
+
+        final int uiMode;
+
+        /**
+         * Held strongly, only when the entry is dropped with the activity
+         */
+        final SparseArray<Themed> themed = new SparseArray<>(2);
+
+        boolean observed;
+
+        boolean stale;
+
+        Entry(boolean lightTheme, int uiMode) {
+            this.lightTheme = lightTheme;
+            this.uiMode = uiMode;
+        }
+    }
+
+    private static class Themed {
+
+        final Context context;
+
+        final LayoutInflater inflater;
+
+        Themed(Context context) {
+            this.context = context;
+            inflater = LayoutInflater.from(context);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.avast.android.dialogs.core;
+
+import android.view.View;
+import android.view.ViewStub;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.FrameLayout;
+import android.widget.ListView;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.avast.android.dialogs.R;
+import com.avast.android.dialogs.util.DialogButtonBar;
+
+/**
+ * Views of {@code R.layout.sdl_dialog}, looked up once when the dialog is inflated and kept by the fragment for the
+ * rest of its view lifecycle.
+ * <p>
+ * Sections are inflated from their stubs on demand, views of a section which was never inflated are null.
+ */
+final class DialogViewHolder {
+
+    final View root;
+
+    final TextView title;
+
+    final View buttonDivider;
+
+    final View buttonsBottomSpace;
+
+    ScrollView messageScrollView;
+
+    TextView message;
+
+    FrameLayout custom;
+
+    EditText search;
+
+    ListView list;
+
+    RecyclerView recycler;
+
+    DialogButtonBar buttons;
+
+    Button positiveButton;
+
+    Button negativeButton;
+
+    Button neutralButton;
+
+    private final ViewStub mMessageStub;
+
+    private final ViewStub mCustomStub;
+
+    private final ViewStub mSearchStub;
+
+    private final ViewStub mListStub;
+
+    private final ViewStub mRecyclerStub;
+
+    private final ViewStub mButtonsStub;
+
+    DialogViewHolder(View root) {
+        this.root = root;
+        title = (TextView) root.findViewById(R.id.sdl_title);
+        buttonDivider = root.findViewById(R.id.sdl_button_divider);
+        buttonsBottomSpace = root.findViewById(R.id.sdl_buttons_bottom_space);
+        mMessageStub = (ViewStub) root.findViewById(R.id.sdl_message_stub);
+        mCustomStub = (ViewStub) root.findViewById(R.id.sdl_custom_stub);
+        mSearchStub = (ViewStub) root.findViewById(R.id.sdl_search_stub);
+        mListStub = (ViewStub) root.findViewById(R.id.sdl_list_stub);
+        mRecyclerStub = (ViewStub) root.findViewById(R.id.sdl_recycler_stub);
+        mButtonsStub = (ViewStub) root.findViewById(R.id.sdl_buttons_stub);
+    }
+
+    TextView inflateMessage() {
+        if (message == null) {
+            messageScrollView = (ScrollView) mMessageStub.inflate();
+            message = (TextView) messageScrollView.findViewById(R.id.sdl_message);
+        }
+        return message;
+    }
+
+    FrameLayout inflateCustom() {
+        if (custom == null) {
+            custom = (FrameLayout) mCustomStub.inflate();
+        }
+        return custom;
+    }
+
+    EditText inflateSearch() {
+        if (search == null) {
+            search = (EditText) mSearchStub.inflate();
+        }
+        return search;
+    }
+
+    ListView inflateList() {
+        if (list == null) {
+            list = (ListView) mListStub.inflate();
+        }
+        return list;
+    }
+
+    RecyclerView inflateRecycler() {
+        if (recycler == null) {
+            recycler = (RecyclerView) mRecyclerStub.inflate();
+        }
+        return recycler;
+    }
+
+    void inflateButtons() {
+        if (buttons == null) {
+            buttons = (DialogButtonBar) mButtonsStub.inflate();
+            positiveButton = buttons.getPositiveButton();
+            negativeButton = buttons.getNegativeButton();
+            neutralButton = buttons.getNeutralButton();
+        }
+    }
+}
@@ -18,6 +18,7 @@ import com.avast.android.dialogs.R;
 import com.avast.android.dialogs.core.BaseDialogBuilder;
 import com.avast.android.dialogs.core.BaseDialogFragment;
 import com.avast.android.dialogs.iface.IDateDialogListener;
+import com.avast.android.dialogs.iface.IDialogFragmentSupplier;
 
 
 
@@ -40,8 +41,15 @@ public class DatePickerDialogFragment extends BaseDialogFragment {
     Calendar mCalendar;
 
 
+    private static final IDialogFragmentSupplier<DatePickerDialogFragment> SUPPLIER = new IDialogFragmentSupplier<DatePickerDialogFragment>() {
+        @Override
+        public DatePickerDialogFragment get() {
+            return new DatePickerDialogFragment();
+        }
+    };
+
     public static SimpleDialogBuilder createBuilder(Context context, FragmentManager fragmentManager) {
-        return new SimpleDialogBuilder(context, fragmentManager, DatePickerDialogFragment.class);
+        return new SimpleDialogBuilder(context, fragmentManager, DatePickerDialogFragment.class, SUPPLIER);
     }
 
     /**
@@ -68,8 +76,9 @@ public class DatePickerDialogFragment extends BaseDialogFragment {
 
                 @Override
                 public void onClick(View view) {
-                    for (IDateDialogListener listener : getDialogListeners()) {
-                        listener.onPositiveButtonClicked(mRequestCode, getDate());
+                    List<IDateDialogListener> listeners = getDialogListeners();
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).onPositiveButtonClicked(mRequestCode, getDate());
                     }
                     dismiss();
                 }
@@ -82,8 +91,9 @@ public class DatePickerDialogFragment extends BaseDialogFragment {
 
                 @Override
                 public void onClick(View view) {
-                    for (IDateDialogListener listener : getDialogListeners()) {
-                        listener.onNegativeButtonClicked(mRequestCode, getDate());
+                    List<IDateDialogListener> listeners = getDialogListeners();
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).onNegativeButtonClicked(mRequestCode, getDate());
                     }
                     dismiss();
                 }
@@ -132,7 +142,12 @@ public class DatePickerDialogFragment extends BaseDialogFragment {
         private boolean m24h;
 
         protected SimpleDialogBuilder(Context context, FragmentManager fragmentManager, Class<? extends DatePickerDialogFragment> clazz) {
-            super(context, fragmentManager, clazz);
+            this(context, fragmentManager, clazz, null);
+        }
+
+        protected SimpleDialogBuilder(Context context, FragmentManager fragmentManager, Class<? extends DatePickerDialogFragment> clazz,
+                                      IDialogFragmentSupplier<? extends DatePickerDialogFragment> supplier) {
+            super(context, fragmentManager, clazz, supplier);
             m24h = DateFormat.is24HourFormat(context);
         }
 
@@ -0,0 +1,65 @@
+package com.avast.android.dialogs.fragment;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentFactory;
+
+import com.avast.android.dialogs.core.BaseDialogFragment;
+
+/**
+ * FragmentFactory which creates dialogs of this library with plain constructor calls, also when they are restored
+ * after a configuration change or process death. Other fragments are created by the delegate factory, or by
+ * reflection when there is none.
+ * <p>
+ * Set it in the activity before {@code super.onCreate()}:
+ * <pre>
+ * getSupportFragmentManager().setFragmentFactory(new DialogFragmentFactory());
+ * </pre>
+ */
+public class DialogFragmentFactory extends FragmentFactory {
+
+    @Nullable
+    private final FragmentFactory mDelegate;
+
+    public DialogFragmentFactory() {
+        this(null);
+    }
+
+    /**
+     * @param delegate factory of the app for its own fragments, null to use reflection
+     */
+    public DialogFragmentFactory(@Nullable FragmentFactory delegate) {
+        mDelegate = delegate;
+    }
+
+    @NonNull
+    @Override
+    public Fragment instantiate(@NonNull ClassLoader classLoader, @NonNull String className) {
+        Fragment fragment = createDialog(className);
+        if (fragment != null) {
+            return fragment;
+        }
+        return mDelegate != null ? mDelegate.instantiate(classLoader, className)
+                : super.instantiate(classLoader, className);
+    }
+
+    /**
+     * @return new instance of the dialog of this library or null when the class is not one of them
+     */
+    @Nullable
+    public static BaseDialogFragment createDialog(@NonNull String className) {
+        if (SimpleDialogFragment.class.getName().equals(className)) {
+            return new SimpleDialogFragment();
+        } else if (ListDialogFragment.class.getName().equals(className)) {
+            return new ListDialogFragment();
+        } else if (ProgressDialogFragment.class.getName().equals(className)) {
+            return new ProgressDialogFragment();
+        } else if (DatePickerDialogFragment.class.getName().equals(className)) {
+            return new DatePickerDialogFragment();
+        } else if (TimePickerDialogFragment.class.getName().equals(className)) {
+            return new TimePickerDialogFragment();
+        }
+        return null;
+    }
+}
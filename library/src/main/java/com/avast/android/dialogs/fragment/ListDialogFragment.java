@@ -1,28 +1,39 @@
 package com.avast.android.dialogs.fragment;
 
-import java.util.Arrays;
 import java.util.List;
 
 import android.content.Context;
 import android.content.res.Resources;
 import android.os.Bundle;
+import android.text.Editable;
 import android.text.TextUtils;
-import android.util.SparseBooleanArray;
-import android.view.LayoutInflater;
+import android.text.TextWatcher;
 import android.view.View;
-import android.view.ViewGroup;
 import android.widget.*;
 
 import androidx.annotation.IntDef;
+import androidx.annotation.LayoutRes;
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
+import androidx.core.view.ViewCompat;
 import androidx.fragment.app.FragmentManager;
 
 import com.avast.android.dialogs.R;
 import com.avast.android.dialogs.core.BaseDialogBuilder;
 import com.avast.android.dialogs.core.BaseDialogFragment;
+import com.avast.android.dialogs.iface.IDialogFragmentSupplier;
 import com.avast.android.dialogs.iface.IListDialogListener;
+import com.avast.android.dialogs.iface.IListItemSource;
 import com.avast.android.dialogs.iface.IMultiChoiceListDialogListener;
 import com.avast.android.dialogs.iface.ISimpleDialogCancelListener;
+import com.avast.android.dialogs.util.ItemIds;
+import com.avast.android.dialogs.util.ListItemAdapter;
+import com.avast.android.dialogs.util.ListItemFilter;
+import com.avast.android.dialogs.util.PagedItemAdapter;
+import com.avast.android.dialogs.util.PagedItemLoader;
+import com.avast.android.dialogs.util.RecyclerItemAdapter;
+import com.avast.android.dialogs.util.RetainedObjectStore;
+import com.avast.android.dialogs.util.SelectionBitSet;
 import com.avast.android.dialogs.util.SparseBooleanArrayParcelable;
 
 /**
@@ -36,36 +47,77 @@ public class ListDialogFragment extends BaseDialogFragment {
 
 
     protected static final String ARG_ITEMS = "items";
+    protected static final String ARG_ITEMS_TOKEN = "itemsToken";
+    protected static final String ARG_ITEMS_RES = "itemsRes";
+    protected static final String ARG_ITEM_IDS = "itemIds";
+    protected static final String ARG_ITEM_SOURCE_TOKEN = "itemSourceToken";
     protected static final String ARG_CHECKED_ITEMS = "checkedItems";
     protected static final String ARG_MODE = "choiceMode";
+    protected static final String ARG_SEARCHABLE = "searchable";
+    protected static final String ARG_SEARCH_HINT = "searchHint";
+    protected static final String ARG_RECYCLER_VIEW = "recyclerView";
     protected final static String ARG_TITLE = "title";
     protected final static String ARG_POSITIVE_BUTTON = "positive_button";
     protected final static String ARG_NEGATIVE_BUTTON = "negative_button";
 
-    public static SimpleListDialogBuilder createBuilder(Context context, FragmentManager fragmentManager) {
-        return new SimpleListDialogBuilder(context, fragmentManager);
-    }
+    private CharSequence[] mItems;
 
-    private static int[] asIntArray(SparseBooleanArray checkedItems) {
-        int checked = 0;
-        // compute number of items
-        for (int i = 0; i < checkedItems.size(); i++) {
-            int key = checkedItems.keyAt(i);
-            if (checkedItems.get(key)) {
-                ++checked;
-            }
+    private ItemIds mItemIds;
+
+    /**
+     * Items were replaced by {@link #updateItems(CharSequence[], long[])}, they must be saved with the state
+     */
+    private boolean mItemsUpdated;
+
+    /**
+     * Latest update which is waiting for the next frame, older updates in the same frame are skipped
+     */
+    private CharSequence[] mPendingItems;
+
+    private long[] mPendingItemIds;
+
+    private boolean mUpdateScheduled;
+
+    /**
+     * Filters the items of an update which is applied when its search result is ready
+     */
+    private ListItemFilter mUpdateFilter;
+
+    private String mQuery = "";
+
+    private final Runnable mApplyUpdate = new Runnable() {
+        @Override
+        public void run() {
+            mUpdateScheduled = false;
+            applyPendingUpdate();
         }
+    };
 
-        int[] array = new int[checked];
-        //add indexes that are checked
-        for (int i = 0, j = 0; i < checkedItems.size(); i++) {
-            int key = checkedItems.keyAt(i);
-            if (checkedItems.get(key)) {
-                array[j++] = key;
-            }
+    private PagedItemLoader mLoader;
+
+    private ListItemAdapter mAdapter;
+
+    private RecyclerItemAdapter mRecyclerAdapter;
+
+    /**
+     * Checked items by original positions, written to the arguments only when the state is saved
+     */
+    private SelectionBitSet mSelection;
+
+    /**
+     * Kept for the whole life of the fragment, the index is built only once for each set of items
+     */
+    private ListItemFilter mFilter;
+
+    private static final IDialogFragmentSupplier<ListDialogFragment> SUPPLIER = new IDialogFragmentSupplier<ListDialogFragment>() {
+        @Override
+        public ListDialogFragment get() {
+            return new ListDialogFragment();
         }
-        Arrays.sort(array);
-        return array;
+    };
+
+    public static SimpleListDialogBuilder createBuilder(Context context, FragmentManager fragmentManager) {
+        return new SimpleListDialogBuilder(context, fragmentManager);
     }
 
     @Override
@@ -75,71 +127,414 @@ public class ListDialogFragment extends BaseDialogFragment {
             throw new IllegalArgumentException(
                 "use SimpleListDialogBuilder to construct this dialog");
         }
+        Bundle args = getArguments();
+        boolean itemsLost = getItems() == null && args.getString(ARG_ITEMS_TOKEN) != null;
+        boolean sourceLost = getItemSource() == null && args.getString(ARG_ITEM_SOURCE_TOKEN) != null;
+        if (itemsLost || sourceLost) {
+            // items stored out of the Bundle were lost with the process and can't be loaded again
+            List<ISimpleDialogCancelListener> listeners = getCancelListeners();
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onCancelled(mRequestCode);
+            }
+            dismissAllowingStateLoss();
+        }
+    }
+
+    @Override
+    public void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        flushPendingUpdate();
+        if (mItemsUpdated) {
+            saveUpdatedItems();
+        }
+        if (mSelection != null) {
+            SparseBooleanArrayParcelable checkedItems = new SparseBooleanArrayParcelable();
+            mSelection.writeTo(checkedItems);
+            setCheckedItems(checkedItems);
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        // a callback posted to a detached view might never run
+        flushPendingUpdate();
+        super.onDestroyView();
+        if (mLoader != null) {
+            mLoader.release();
+            mLoader = null;
+        }
+        if (mFilter != null) {
+            mFilter.cancel();
+        }
+        mAdapter = null;
+        mRecyclerAdapter = null;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        Bundle args = getArguments();
+        if (args != null && (isRemoving() || getActivity() == null || getActivity().isFinishing())) {
+            // the dialog is gone for good, not just being recreated
+            String token = args.getString(ARG_ITEMS_TOKEN);
+            if (token != null) {
+                RetainedObjectStore.remove(token);
+            }
+            String sourceToken = args.getString(ARG_ITEM_SOURCE_TOKEN);
+            if (sourceToken != null) {
+                RetainedObjectStore.remove(sourceToken);
+            }
+        }
+    }
+
+    /**
+     * Replace items of the dialog while it's shown. Rows are updated incrementally, the checked state follows item
+     * ids, so checked items stay checked when other items are inserted or removed. Any number of updates within one
+     * frame cause a single rebind with the latest items.
+     * <p>
+     * Items set with the builder have ids equal to their positions. Not supported together with
+     * {@link SimpleListDialogBuilder#setItemSource(IListItemSource)}.
+     *
+     * @param items new items
+     * @param ids   unique stable ids of the items, null to use positions
+     */
+    @MainThread
+    public void updateItems(CharSequence[] items, long[] ids) {
+        if (getItemSource() != null) {
+            throw new IllegalStateException("items of an item source can't be updated");
+        }
+        if (ids != null && ids.length != items.length) {
+            throw new IllegalArgumentException("expected " + items.length + " ids, got " + ids.length);
+        }
+        mPendingItems = items;
+        mPendingItemIds = ids;
+        View view = getView();
+        if (view == null) {
+            // nothing is shown yet, no need to wait for a frame
+            applyPendingUpdate();
+        } else if (!mUpdateScheduled) {
+            mUpdateScheduled = true;
+            ViewCompat.postOnAnimation(view, mApplyUpdate);
+        }
     }
 
-    private ListAdapter prepareAdapter(final int itemLayoutId) {
-        return new ArrayAdapter<Object>(getActivity(),
-            itemLayoutId,
-            R.id.sdl_text,
-            getItems()) {
+    private void flushPendingUpdate() {
+        if (mUpdateScheduled) {
+            mUpdateScheduled = false;
+            if (getView() != null) {
+                getView().removeCallbacks(mApplyUpdate);
+            }
+            applyPendingUpdate();
+        }
+    }
 
-            /**
-             * Overriding default implementation because it ignores current light/dark theme.
-             */
+    private void applyPendingUpdate() {
+        if (mPendingItems == null) {
+            return;
+        }
+        final CharSequence[] items = mPendingItems;
+        final ItemIds ids = new ItemIds(mPendingItemIds, items.length);
+        mPendingItems = null;
+        mPendingItemIds = null;
+        if (mUpdateFilter != null) {
+            // replaced by this update before its search result came
+            mUpdateFilter.cancel();
+            mUpdateFilter = null;
+        }
+        if (mQuery.trim().length() == 0 || getView() == null) {
+            commitItems(items, ids, null, "", null);
+            return;
+        }
+        // keep showing the previous items until the new ones are filtered too
+        final ListItemFilter filter = new ListItemFilter(items);
+        final String query = mQuery;
+        mUpdateFilter = filter;
+        filter.filter(query, new ListItemFilter.OnFilterResultListener() {
             @Override
-            public View getView(int position, View convertView, ViewGroup parent) {
-                if (convertView == null) {
-                    convertView = LayoutInflater.from(parent.getContext()).inflate(itemLayoutId, parent, false);
+            public void onFilterResult(int[] positions) {
+                mUpdateFilter = null;
+                commitItems(items, ids, filter, query, positions);
+            }
+        });
+    }
+
+    /**
+     * @param filter    filter of the new items or null to create it when needed
+     * @param query     query the positions were filtered with
+     * @param positions positions of the new items to show, null to show all of them
+     */
+    private void commitItems(CharSequence[] items, ItemIds ids, ListItemFilter filter, String query, int[] positions) {
+        SelectionBitSet selection = null;
+        if (getMode() != AbsListView.CHOICE_MODE_NONE) {
+            // move checked state from old positions to new positions of the same ids
+            SelectionBitSet oldSelection = getSelection();
+            ItemIds oldIds = getItemIds();
+            selection = new SelectionBitSet(items.length);
+            for (int p = oldSelection.nextChecked(0); p != -1; p = oldSelection.nextChecked(p + 1)) {
+                int newPosition = ids.indexOf(oldIds.getId(p));
+                if (newPosition != -1) {
+                    selection.setChecked(newPosition, true);
                 }
-                TextView t = (TextView)convertView.findViewById(R.id.sdl_text);
-                if (t != null) {
-                    t.setText((CharSequence)getItem(position));
+            }
+            mSelection = selection;
+        }
+        mItems = items;
+        mItemIds = ids;
+        mItemsUpdated = true;
+        if (mFilter != null) {
+            mFilter.cancel();
+        }
+        mFilter = filter;
+
+        if (mAdapter != null) {
+            mAdapter.setItems(items, ids);
+            mAdapter.setPositions(positions);
+            mAdapter.setSelection(selection);
+            mAdapter.notifyDataSetChanged();
+        }
+        if (mRecyclerAdapter != null) {
+            mRecyclerAdapter.setSelection(selection);
+            mRecyclerAdapter.setItems(items, ids, positions);
+        }
+        if (!query.equals(mQuery)) {
+            // the query changed while the items were filtered
+            filterItems(mQuery);
+        }
+    }
+
+    private void saveUpdatedItems() {
+        Bundle args = getArguments();
+        String token = args.getString(ARG_ITEMS_TOKEN);
+        if (token != null) {
+            RetainedObjectStore.remove(token);
+            args.putString(ARG_ITEMS_TOKEN, RetainedObjectStore.put(mItems));
+            // the resource doesn't contain these items
+            args.remove(ARG_ITEMS_RES);
+        } else {
+            args.putCharSequenceArray(ARG_ITEMS, mItems);
+        }
+        args.putLongArray(ARG_ITEM_IDS, mItemIds.toArray());
+        mItemsUpdated = false;
+    }
+
+    private ListAdapter prepareAdapter(int itemLayoutId) {
+        IListItemSource source = getItemSource();
+        if (source != null) {
+            mLoader = new PagedItemLoader(source);
+            mAdapter = new PagedItemAdapter(itemLayoutId, mLoader);
+        } else {
+            mAdapter = createItemAdapter(getItems(), getItemIds(), itemLayoutId);
+        }
+        if (getMode() != AbsListView.CHOICE_MODE_NONE) {
+            mAdapter.setSelection(getSelection());
+        }
+        return mAdapter;
+    }
+
+    /**
+     * Create adapter of the items. Override to return a subclass of {@link ListItemAdapter} which binds custom row
+     * content, the layout can be replaced too as long as its root stays {@link Checkable} for choice modes.
+     *
+     * @param ids          stable ids of the items
+     * @param itemLayoutId default row layout of the choice mode
+     */
+    protected ListItemAdapter createItemAdapter(CharSequence[] items, ItemIds ids, @LayoutRes int itemLayoutId) {
+        return new ListItemAdapter(items, ids, itemLayoutId);
+    }
+
+    /**
+     * Create adapter of the items when the list is backed by a RecyclerView, see
+     * {@link SimpleListDialogBuilder#setRecyclerView(boolean)}.
+     *
+     * @param ids          stable ids of the items
+     * @param itemLayoutId default row layout of the choice mode
+     */
+    protected RecyclerItemAdapter createRecyclerItemAdapter(CharSequence[] items, ItemIds ids,
+                                                            @LayoutRes int itemLayoutId) {
+        return new RecyclerItemAdapter(items, ids, itemLayoutId);
+    }
+
+    /**
+     * Rebind visible rows once after checked state of any number of items changed.
+     */
+    private void notifyCheckedItemsChanged() {
+        if (mAdapter != null) {
+            mAdapter.notifyDataSetChanged();
+        }
+        if (mRecyclerAdapter != null) {
+            mRecyclerAdapter.notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * @return number of checked items, it's not counted on every call
+     */
+    public int getCheckedItemCount() {
+        return getSelection().getCheckedCount();
+    }
+
+    /**
+     * Check or uncheck all items. Valid for setChoiceMode(AbsListView.CHOICE_MODE_MULTIPLE)
+     */
+    public void setAllItemsChecked(boolean checked) {
+        checkMultipleChoiceMode();
+        getSelection().setAllChecked(checked);
+        notifyCheckedItemsChanged();
+    }
+
+    /**
+     * Check or uncheck items in a range of positions. Valid for setChoiceMode(AbsListView.CHOICE_MODE_MULTIPLE)
+     *
+     * @param from first position, inclusive
+     * @param to   last position, exclusive
+     */
+    public void setItemsChecked(int from, int to, boolean checked) {
+        checkMultipleChoiceMode();
+        getSelection().setRangeChecked(Math.max(from, 0), Math.min(to, getItemCount()), checked);
+        notifyCheckedItemsChanged();
+    }
+
+    /**
+     * Check unchecked items and uncheck checked ones. Valid for setChoiceMode(AbsListView.CHOICE_MODE_MULTIPLE)
+     */
+    public void invertCheckedItems() {
+        checkMultipleChoiceMode();
+        getSelection().invert();
+        notifyCheckedItemsChanged();
+    }
+
+    private void checkMultipleChoiceMode() {
+        if (getMode() != AbsListView.CHOICE_MODE_MULTIPLE) {
+            throw new IllegalStateException("only valid for AbsListView.CHOICE_MODE_MULTIPLE");
+        }
+    }
+
+    /**
+     * @return position of the item before filtering
+     */
+    private int getOriginalPosition(int position) {
+        return mAdapter != null ? mAdapter.getOriginalPosition(position) : position;
+    }
+
+    private ListItemFilter getFilter() {
+        if (mFilter == null) {
+            mFilter = new ListItemFilter(getItems());
+            mFilter.prepare();
+        }
+        return mFilter;
+    }
+
+    private void filterItems(String query) {
+        final ListItemFilter filter = getFilter();
+        filter.filter(query, new ListItemFilter.OnFilterResultListener() {
+            @Override
+            public void onFilterResult(int[] positions) {
+                // results for items which were replaced meanwhile don't apply
+                if (filter == mFilter) {
+                    showFilteredItems(positions);
                 }
-                return convertView;
             }
-        };
+        });
     }
 
-    private void buildMultiChoice(Builder builder) {
-        builder.setItems(
-            prepareAdapter(R.layout.sdl_list_item_multichoice),
-            asIntArray(getCheckedItems()), AbsListView.CHOICE_MODE_MULTIPLE,
-            new AdapterView.OnItemClickListener() {
-                @Override
-                public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                    SparseBooleanArray checkedPositions = ((ListView)parent).getCheckedItemPositions();
-                    setCheckedItems(new SparseBooleanArrayParcelable(checkedPositions));
+    private void buildSearch(Builder builder) {
+        getFilter();
+        CharSequence hint = getArguments().getCharSequence(ARG_SEARCH_HINT);
+        if (hint == null) {
+            hint = getString(android.R.string.search_go);
+        }
+        builder.setSearch(hint, new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                mQuery = s.toString();
+                if (mUpdateFilter == null) {
+                    filterItems(mQuery);
                 }
-            });
+                // otherwise the items are about to be replaced and filtered again with the current query
+            }
+        });
     }
 
-    private void buildSingleChoice(Builder builder) {
-        builder.setItems(
-            prepareAdapter(R.layout.sdl_list_item_singlechoice),
-            asIntArray(getCheckedItems()),
-            AbsListView.CHOICE_MODE_SINGLE, new AdapterView.OnItemClickListener() {
+    private void showFilteredItems(int[] positions) {
+        // checked state is bound by original positions, it doesn't need any remapping
+        if (mAdapter != null) {
+            mAdapter.setPositions(positions);
+            mAdapter.notifyDataSetChanged();
+        }
+        if (mRecyclerAdapter != null) {
+            mRecyclerAdapter.setPositions(positions);
+        }
+    }
+
+    private void buildList(Builder builder, @LayoutRes int itemLayoutId) {
+        if (isRecyclerView() && getItemSource() == null) {
+            mRecyclerAdapter = createRecyclerItemAdapter(getItems(), getItemIds(), itemLayoutId);
+            if (getMode() != AbsListView.CHOICE_MODE_NONE) {
+                mRecyclerAdapter.setSelection(getSelection());
+            }
+            mRecyclerAdapter.setOnItemClickListener(new RecyclerItemAdapter.OnItemClickListener() {
                 @Override
-                public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                    SparseBooleanArray checkedPositions = ((ListView)parent).getCheckedItemPositions();
-                    setCheckedItems(new SparseBooleanArrayParcelable(checkedPositions));
+                public void onItemClick(View view, int position) {
+                    onItemClicked(view, position);
                 }
             });
-    }
-
-    private void buildNormalChoice(Builder builder) {
+            builder.setItems(mRecyclerAdapter);
+            return;
+        }
         builder.setItems(
-            prepareAdapter(R.layout.sdl_list_item), -1,
+            prepareAdapter(itemLayoutId), -1,
             new AdapterView.OnItemClickListener() {
                 @Override
                 public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                    for (IListDialogListener listener : getSingleDialogListeners()) {
-                        listener.onListItemSelected(getItems()[position], position, mRequestCode);
-                    }
-                    dismiss();
+                    onItemClicked(view, getOriginalPosition(position));
                 }
             });
     }
 
+    /**
+     * @param position original position of the item
+     */
+    private void onItemClicked(View view, int position) {
+        switch (getMode()) {
+            case AbsListView.CHOICE_MODE_MULTIPLE:
+                // only the tapped row changes, no need to rebind the others
+                boolean checked = getSelection().toggle(position);
+                if (view instanceof Checkable) {
+                    ((Checkable)view).setChecked(checked);
+                }
+                break;
+            case AbsListView.CHOICE_MODE_SINGLE:
+                SelectionBitSet selection = getSelection();
+                int previous = selection.nextChecked(0);
+                if (previous != -1) {
+                    selection.setChecked(previous, false);
+                }
+                selection.setChecked(position, true);
+                notifyCheckedItemsChanged();
+                break;
+            case AbsListView.CHOICE_MODE_NONE:
+                CharSequence value = mLoader != null ? mLoader.get(position) : getItems()[position];
+                if (value == null) {
+                    // placeholder, the item is still being loaded
+                    return;
+                }
+                List<IListDialogListener> listeners = getSingleDialogListeners();
+                for (int i = 0; i < listeners.size(); i++) {
+                    listeners.get(i).onListItemSelected(value, position, mRequestCode);
+                }
+                dismiss();
+                break;
+        }
+    }
+
     @Override
     protected Builder build(Builder builder) {
         final CharSequence title = getTitle();
@@ -151,8 +546,9 @@ public class ListDialogFragment extends BaseDialogFragment {
             builder.setNegativeButton(getNegativeButtonText(), new View.OnClickListener() {
                 @Override
                 public void onClick(View view) {
-                    for (ISimpleDialogCancelListener listener : getCancelListeners()) {
-                        listener.onCancelled(mRequestCode);
+                    List<ISimpleDialogCancelListener> listeners = getCancelListeners();
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).onCancelled(mRequestCode);
                     }
                     dismiss();
                 }
@@ -166,52 +562,64 @@ public class ListDialogFragment extends BaseDialogFragment {
                 case AbsListView.CHOICE_MODE_MULTIPLE:
                     positiveButtonClickListener = new View.OnClickListener() {
                         @Override
-                        public void onClick(View view) {
+                        public void onClick(final View view) {
                             // prepare multiple results
-                            final int[] checkedPositions = asIntArray(getCheckedItems());
-                            final CharSequence[] items = getItems();
-                            final CharSequence[] checkedValues = new CharSequence[checkedPositions.length];
-                            int i = 0;
-                            for (int checkedPosition : checkedPositions) {
-                                if (checkedPosition >= 0 && checkedPosition < items.length) {
-                                    checkedValues[i++] = items[checkedPosition];
+                            final int[] checkedPositions = getSelection().toArray();
+
+                            view.setEnabled(false);
+                            resolveItems(checkedPositions, new PagedItemLoader.OnItemsResolvedListener() {
+                                @Override
+                                public void onItemsResolved(CharSequence[] checkedValues) {
+                                    List<IMultiChoiceListDialogListener> listeners = getMutlipleDialogListeners();
+                                    for (int i = 0; i < listeners.size(); i++) {
+                                        listeners.get(i).onListItemsSelected(checkedValues, checkedPositions, mRequestCode);
+                                    }
+                                    dismiss();
                                 }
-                            }
 
-                            for (IMultiChoiceListDialogListener listener : getMutlipleDialogListeners()) {
-                                listener.onListItemsSelected(checkedValues, checkedPositions, mRequestCode);
-                            }
-                            dismiss();
+                                @Override
+                                public void onItemsFailed(Throwable error) {
+                                    // let the user try again
+                                    view.setEnabled(true);
+                                }
+                            });
                         }
                     };
                     break;
                 case AbsListView.CHOICE_MODE_SINGLE:
                     positiveButtonClickListener = new View.OnClickListener() {
                         @Override
-                        public void onClick(View view) {
+                        public void onClick(final View view) {
                             // prepare single result
-                            int selectedPosition = -1;
-                            final int[] checkedPositions = asIntArray(getCheckedItems());
-                            final CharSequence[] items = getItems();
-                            for (int i : checkedPositions) {
-                                if (i >= 0 && i < items.length) {
-                                    //1st valid value
-                                    selectedPosition = i;
-                                    break;
-                                }
-                            }
+                            int selectedPosition = getSelection().nextChecked(0);
 
                             // either item is selected or dialog is cancelled
                             if (selectedPosition != -1) {
-                                for (IListDialogListener listener : getSingleDialogListeners()) {
-                                    listener.onListItemSelected(items[selectedPosition], selectedPosition, mRequestCode);
-                                }
+                                final int position = selectedPosition;
+                                view.setEnabled(false);
+                                resolveItems(new int[]{position}, new PagedItemLoader.OnItemsResolvedListener() {
+                                    @Override
+                                    public void onItemsResolved(CharSequence[] items) {
+                                        List<IListDialogListener> listeners = getSingleDialogListeners();
+                                        for (int i = 0; i < listeners.size(); i++) {
+                                            listeners.get(i).onListItemSelected(items[0], position, mRequestCode);
+                                        }
+                                        dismiss();
+                                    }
+
+                                    @Override
+                                    public void onItemsFailed(Throwable error) {
+                                        // let the user try again
+                                        view.setEnabled(true);
+                                    }
+                                });
                             } else {
-                                for (ISimpleDialogCancelListener listener : getCancelListeners()) {
-                                    listener.onCancelled(mRequestCode);
+                                List<ISimpleDialogCancelListener> listeners = getCancelListeners();
+                                for (int i = 0; i < listeners.size(); i++) {
+                                    listeners.get(i).onCancelled(mRequestCode);
                                 }
+                                dismiss();
                             }
-                            dismiss();
                         }
                     };
                     break;
@@ -225,20 +633,22 @@ public class ListDialogFragment extends BaseDialogFragment {
             builder.setPositiveButton(positiveButton, positiveButtonClickListener);
         }
 
-        // prepare list and its item click listener
-        final CharSequence[] items = getItems();
-        if (items != null && items.length > 0) {
+        // prepare list and its item click listener, an empty list too, its items can be updated later
+        if (getItemSource() != null ? getItemCount() > 0 : getItems() != null) {
+            if (isSearchable() && getItemSource() == null) {
+                buildSearch(builder);
+            }
             @ChoiceMode
             final int mode = getMode();
             switch (mode) {
                 case AbsListView.CHOICE_MODE_MULTIPLE:
-                    buildMultiChoice(builder);
+                    buildList(builder, R.layout.sdl_list_item_multichoice);
                     break;
                 case AbsListView.CHOICE_MODE_SINGLE:
-                    buildSingleChoice(builder);
+                    buildList(builder, R.layout.sdl_list_item_singlechoice);
                     break;
                 case AbsListView.CHOICE_MODE_NONE:
-                    buildNormalChoice(builder);
+                    buildList(builder, R.layout.sdl_list_item);
                     break;
             }
         }
@@ -278,8 +688,77 @@ public class ListDialogFragment extends BaseDialogFragment {
         return getArguments().getInt(ARG_MODE);
     }
 
+    private boolean isRecyclerView() {
+        return getArguments().getBoolean(ARG_RECYCLER_VIEW);
+    }
+
+    private boolean isSearchable() {
+        return getArguments().getBoolean(ARG_SEARCHABLE);
+    }
+
     private CharSequence[] getItems() {
-        return getArguments().getCharSequenceArray(ARG_ITEMS);
+        if (mItems == null) {
+            Bundle args = getArguments();
+            String token = args.getString(ARG_ITEMS_TOKEN);
+            if (token == null) {
+                mItems = args.getCharSequenceArray(ARG_ITEMS);
+            } else {
+                mItems = RetainedObjectStore.get(token);
+                if (mItems == null && args.containsKey(ARG_ITEMS_RES)) {
+                    // process died, fall back to the resource the items came from
+                    mItems = getResources().getStringArray(args.getInt(ARG_ITEMS_RES));
+                }
+            }
+        }
+        return mItems;
+    }
+
+    private ItemIds getItemIds() {
+        if (mItemIds == null) {
+            CharSequence[] items = getItems();
+            mItemIds = new ItemIds(getArguments().getLongArray(ARG_ITEM_IDS), items != null ? items.length : 0);
+        }
+        return mItemIds;
+    }
+
+    private IListItemSource getItemSource() {
+        String token = getArguments().getString(ARG_ITEM_SOURCE_TOKEN);
+        return token != null ? RetainedObjectStore.<IListItemSource>get(token) : null;
+    }
+
+    private int getItemCount() {
+        if (mLoader != null) {
+            return mLoader.getCount();
+        }
+        IListItemSource source = getItemSource();
+        if (source != null) {
+            return source.getCount();
+        }
+        CharSequence[] items = getItems();
+        return items != null ? items.length : 0;
+    }
+
+    /**
+     * Values of given positions, items of a paged source which are not loaded yet are loaded in the background.
+     */
+    private void resolveItems(int[] positions, PagedItemLoader.OnItemsResolvedListener listener) {
+        if (mLoader != null) {
+            mLoader.resolve(positions, listener);
+            return;
+        }
+        CharSequence[] items = getItems();
+        CharSequence[] values = new CharSequence[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            values[i] = items[positions[i]];
+        }
+        listener.onItemsResolved(values);
+    }
+
+    private SelectionBitSet getSelection() {
+        if (mSelection == null) {
+            mSelection = SelectionBitSet.from(getCheckedItems(), getItemCount());
+        }
+        return mSelection;
     }
 
     @NonNull
@@ -313,6 +792,18 @@ public class ListDialogFragment extends BaseDialogFragment {
 
         private CharSequence[] items;
 
+        private int itemsResID;
+
+        private boolean itemsOutOfBundle;
+
+        private IListItemSource itemSource;
+
+        private boolean searchable;
+
+        private CharSequence searchHint;
+
+        private boolean recyclerView;
+
         @ChoiceMode
         private int mode;
         private int[] checkedItems;
@@ -322,7 +813,7 @@ public class ListDialogFragment extends BaseDialogFragment {
 
 
         public SimpleListDialogBuilder(Context context, FragmentManager fragmentManager) {
-            super(context, fragmentManager, ListDialogFragment.class);
+            super(context, fragmentManager, ListDialogFragment.class, SUPPLIER);
         }
 
         @Override
@@ -376,11 +867,89 @@ public class ListDialogFragment extends BaseDialogFragment {
 
         public SimpleListDialogBuilder setItems(CharSequence[] items) {
             this.items = items;
+            this.itemsResID = 0;
             return this;
         }
 
+        /**
+         * The array is loaded when the dialog is shown, so with {@link #showAsync()} it's not read on the main
+         * thread.
+         */
         public SimpleListDialogBuilder setItems(int itemsArrayResID) {
-            this.items = getResources().getStringArray(itemsArrayResID);
+            this.items = null;
+            this.itemsResID = itemsArrayResID;
+            return this;
+        }
+
+        /**
+         * Keep items in a process-scoped store and put only a small token into the fragment arguments. Use it for
+         * long lists which would make saving the state slow or fail with {@code TransactionTooLargeException}.
+         * <p>
+         * When the process dies while the dialog is shown, items set with {@link #setItems(int)} are loaded from
+         * the resource again. Other items can't be restored, the dialog is then cancelled (cancel listeners are
+         * notified) and dismissed.
+         *
+         * @param outOfBundle true to keep items out of the Bundle
+         * @return builder
+         */
+        public SimpleListDialogBuilder setItemsOutOfBundle(boolean outOfBundle) {
+            this.itemsOutOfBundle = outOfBundle;
+            return this;
+        }
+
+        /**
+         * Load items from a source page by page in the background instead of passing all of them up front. Only
+         * loaded pages are kept in memory, rows which are not loaded yet are shown empty. Replaces items set with
+         * {@link #setItems(CharSequence[])} or {@link #setItems(int)}.
+         * <p>
+         * The source is kept out of the Bundle, when the process dies while the dialog is shown, the dialog is
+         * cancelled (cancel listeners are notified) and dismissed.
+         *
+         * @param source source of the items
+         * @return builder
+         */
+        public SimpleListDialogBuilder setItemSource(IListItemSource source) {
+            this.itemSource = source;
+            return this;
+        }
+
+        /**
+         * Show a search field above the list which filters the items as the user types. Filtering runs in the
+         * background, positions passed to the listeners and {@link #setCheckedItems(int[])} are always positions in
+         * the whole list.
+         * <p>
+         * Not supported together with {@link #setItemSource(IListItemSource)}, showing such dialog throws
+         * {@link IllegalStateException}.
+         *
+         * @param searchable true to show the search field
+         * @return builder
+         */
+        public SimpleListDialogBuilder setSearchable(boolean searchable) {
+            this.searchable = searchable;
+            return this;
+        }
+
+        public SimpleListDialogBuilder setSearchHint(CharSequence hint) {
+            this.searchHint = hint;
+            return this;
+        }
+
+        public SimpleListDialogBuilder setSearchHint(int hintResID) {
+            this.searchHint = getResources().getString(hintResID);
+            return this;
+        }
+
+        /**
+         * Show the items in a RecyclerView instead of a ListView. Rows are recycled and prefetched while scrolling
+         * and changes of shown items (e.g. search results) are diffed on a background thread.
+         * <p>
+         * Not supported together with {@link #setItemSource(IListItemSource)}, the ListView is used then.
+         *
+         * @param recyclerView true to use a RecyclerView
+         * @return builder
+         */
+        public SimpleListDialogBuilder setRecyclerView(boolean recyclerView) {
+            this.recyclerView = recyclerView;
             return this;
         }
 
@@ -409,14 +978,51 @@ public class ListDialogFragment extends BaseDialogFragment {
             return (ListDialogFragment)super.show();
         }
 
+        @Override
+        protected void releaseArguments(Bundle args) {
+            String token = args.getString(ARG_ITEMS_TOKEN);
+            if (token != null) {
+                RetainedObjectStore.remove(token);
+            }
+            String sourceToken = args.getString(ARG_ITEM_SOURCE_TOKEN);
+            if (sourceToken != null) {
+                RetainedObjectStore.remove(sourceToken);
+            }
+        }
+
+        @Override
+        protected Bundle prepareTemplateArguments() {
+            if (itemSource != null || itemsOutOfBundle) {
+                // the store entry is released by the first dialog which is gone
+                throw new IllegalStateException("items kept out of the Bundle can't be part of a template");
+            }
+            return super.prepareTemplateArguments();
+        }
+
         @Override
         protected Bundle prepareArguments() {
+            if (itemSource != null && searchable) {
+                throw new IllegalStateException("items of a source can't be searched");
+            }
             Bundle args = new Bundle();
             args.putCharSequence(ARG_TITLE, title);
             args.putCharSequence(ARG_POSITIVE_BUTTON, confirmButtonText);
             args.putCharSequence(ARG_NEGATIVE_BUTTON, cancelButtonText);
 
-            args.putCharSequenceArray(ARG_ITEMS, items);
+            CharSequence[] items = this.items;
+            if (items == null && itemsResID != 0) {
+                items = getResources().getStringArray(itemsResID);
+            }
+            if (itemSource != null) {
+                args.putString(ARG_ITEM_SOURCE_TOKEN, RetainedObjectStore.put(itemSource));
+            } else if (itemsOutOfBundle) {
+                args.putString(ARG_ITEMS_TOKEN, RetainedObjectStore.put(items));
+                if (itemsResID != 0) {
+                    args.putInt(ARG_ITEMS_RES, itemsResID);
+                }
+            } else {
+                args.putCharSequenceArray(ARG_ITEMS, items);
+            }
 
             SparseBooleanArrayParcelable sparseArray = new SparseBooleanArrayParcelable();
             for (int index = 0; checkedItems != null && index < checkedItems.length; index++) {
@@ -424,6 +1030,9 @@ public class ListDialogFragment extends BaseDialogFragment {
             }
             args.putParcelable(ARG_CHECKED_ITEMS, sparseArray);
             args.putInt(ARG_MODE, mode);
+            args.putBoolean(ARG_SEARCHABLE, searchable);
+            args.putCharSequence(ARG_SEARCH_HINT, searchHint);
+            args.putBoolean(ARG_RECYCLER_VIEW, recyclerView);
 
 
             return args;
@@ -1,20 +1,58 @@
 package com.avast.android.dialogs.fragment;
 
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import android.content.Context;
+import android.content.DialogInterface;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.core.view.ViewCompat;
 import androidx.fragment.app.FragmentManager;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
 
 import com.avast.android.dialogs.R;
 import com.avast.android.dialogs.core.BaseDialogBuilder;
 import com.avast.android.dialogs.core.BaseDialogFragment;
+import com.avast.android.dialogs.iface.IDialogFragmentSupplier;
+import com.avast.android.dialogs.iface.IProgressTaskListener;
+import com.avast.android.dialogs.iface.ISimpleDialogCancelListener;
+import com.avast.android.dialogs.util.RetainedObjectStore;
 
 /**
  * Simple progress dialog that shows indeterminate progress bar together with message and dialog title (optional).<br/>
  * <p>
+ * With {@link ProgressDialogBuilder#setMax(int)} the dialog shows determinate progress instead. Progress can be
+ * reported from any thread and as often as needed, the dialog shows the latest values once per frame.
+ * </p>
+ * <p>
+ * With {@link ProgressDialogBuilder#setTask(Callable)} the dialog shows a background task. Cancelling the dialog
+ * interrupts the task, when the task finishes the dialog dismisses itself and its result goes to
+ * {@link com.avast.android.dialogs.iface.IProgressTaskListener}.
+ * </p>
+ * <p>
+ * For operations which are often short, see {@link ProgressDialogBuilder#setShowDelay(long)} and
+ * {@link ProgressDialogBuilder#setMinShowTime(long)}.
+ * </p>
+ * <p>
  * To show the dialog, start with {@link #createBuilder(android.content.Context, androidx.fragment.app.FragmentManager)}.
  * </p>
  * <p>
@@ -25,9 +63,92 @@ import com.avast.android.dialogs.core.BaseDialogFragment;
  */
 public class ProgressDialogFragment extends BaseDialogFragment {
 
-    protected final static String ARG_MESSAGE = "message";
+    protected final static String ARG_MESSAGE = BaseDialogBuilder.ARG_MESSAGE;
     protected final static String ARG_TITLE = "title";
+    protected final static String ARG_MAX = "max";
+    protected final static String ARG_PROGRESS = "progress";
+    protected final static String ARG_SECONDARY_PROGRESS = "secondary_progress";
+    protected final static String ARG_NEGATIVE_BUTTON = "negative_button";
+    protected final static String ARG_TASK_TOKEN = "task_token";
+    protected final static String ARG_SHOW_DELAY = "show_delay";
+    protected final static String ARG_MIN_SHOW_TIME = "min_show_time";
+    /**
+     * Set while a dismissal waits for the minimum show time, so a dialog recreated in the meantime closes too
+     */
+    protected final static String ARG_DISMISS_REQUESTED = "dismiss_requested";
+
+    /**
+     * Marks a value which wasn't reported yet, the one from arguments is shown then
+     */
+    private static final int UNSET = -1;
+
+    // written by any thread, read on the main thread when an update is applied
+    private volatile int mProgress = UNSET;
+
+    private volatile int mSecondaryProgress = UNSET;
+
+    private volatile int mMax = UNSET;
+
+    private volatile CharSequence mMessage;
 
+    private volatile boolean mMessageSet;
+
+    /**
+     * At most one update is waiting for a frame, it shows whatever the latest values are then
+     */
+    private final AtomicBoolean mUpdatePosted = new AtomicBoolean();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Content of the dialog, null while it has no view
+     */
+    private volatile View mView;
+
+    private ProgressBar mProgressBar;
+
+    private TextView mMessageView;
+
+    private BoundTask mTask;
+
+    /**
+     * Commit of the dialog waiting for the show delay, null when there is none
+     */
+    private Runnable mPendingShow;
+
+    /**
+     * Drops the pending show when the host is destroyed, null when there is no pending show or no known host
+     */
+    private LifecycleEventObserver mHostObserver;
+
+    /**
+     * Uptime of the commit, 0 when the dialog wasn't shown by this instance, e.g. after a configuration change
+     */
+    private long mShownAt;
+
+    private final Runnable mPendingDismiss = new Runnable() {
+        @Override
+        public void run() {
+            // the activity might have been stopped in the meantime
+            ProgressDialogFragment.super.dismissAllowingStateLoss();
+        }
+    };
+
+    private final Runnable mApplyUpdate = new Runnable() {
+        @Override
+        public void run() {
+            // cleared first, values reported from now on need another update
+            mUpdatePosted.set(false);
+            applyProgress();
+        }
+    };
+
+    private static final IDialogFragmentSupplier<ProgressDialogFragment> SUPPLIER = new IDialogFragmentSupplier<ProgressDialogFragment>() {
+        @Override
+        public ProgressDialogFragment get() {
+            return new ProgressDialogFragment();
+        }
+    };
 
     public static ProgressDialogBuilder createBuilder(Context context, FragmentManager fragmentManager) {
         return new ProgressDialogBuilder(context, fragmentManager);
@@ -36,34 +157,481 @@ public class ProgressDialogFragment extends BaseDialogFragment {
     @Override
     protected Builder build(Builder builder) {
         final LayoutInflater inflater = builder.getLayoutInflater();
-        final View view = inflater.inflate(R.layout.sdl_progress, null, false);
-        final TextView tvMessage = (TextView) view.findViewById(R.id.sdl_message);
-
-        tvMessage.setText(getArguments().getCharSequence(ARG_MESSAGE));
+        final boolean determinate = isDeterminate();
+        final View view = inflater.inflate(determinate ? R.layout.sdl_progress_determinate : R.layout.sdl_progress,
+                null, false);
+        mMessageView = (TextView) view.findViewById(R.id.sdl_message);
+        if (determinate) {
+            mProgressBar = (ProgressBar) view.findViewById(R.id.sdl_progress);
+        }
+        mView = view;
+        applyProgress();
 
         builder.setView(view);
 
         builder.setTitle(getArguments().getCharSequence(ARG_TITLE));
 
+        final CharSequence negativeButtonText = getArguments().getCharSequence(ARG_NEGATIVE_BUTTON);
+        if (!TextUtils.isEmpty(negativeButtonText)) {
+            builder.setNegativeButton(negativeButtonText, new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    // same as back press, even when the dialog isn't cancelable
+                    getDialog().cancel();
+                }
+            });
+        }
+
         return builder;
     }
 
+    @Override
+    public void onAttach(@NonNull Context context) {
+        super.onAttach(context);
+        // shown without show(), e.g. added by a custom transaction
+        startTask();
+    }
+
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
         if (getArguments() == null) {
             throw new IllegalArgumentException("use ProgressDialogBuilder to construct this dialog");
         }
+        String token = getArguments().getString(ARG_TASK_TOKEN);
+        if (getArguments().getBoolean(ARG_DISMISS_REQUESTED)) {
+            // dismissed during the minimum show time of the previous instance, its result was already delivered
+            if (token != null) {
+                // released in onDestroy()
+                mTask = RetainedObjectStore.get(token);
+            }
+            super.dismissAllowingStateLoss();
+            return;
+        }
+        if (token != null) {
+            mTask = RetainedObjectStore.get(token);
+            if (mTask != null) {
+                mTask.bind(this);
+            } else {
+                // the task was lost with the process, nothing would ever dismiss the dialog
+                List<ISimpleDialogCancelListener> listeners = getCancelListeners();
+                for (int i = 0; i < listeners.size(); i++) {
+                    listeners.get(i).onCancelled(mRequestCode);
+                }
+                dismissAllowingStateLoss();
+            }
+        }
+    }
+
+    /**
+     * Show the dialog once the show delay expires, if it's not dismissed before.
+     */
+    @Override
+    public void show(@NonNull FragmentManager manager, String tag) {
+        scheduleShow(manager, tag, false);
+    }
+
+    @Override
+    public void showAllowingStateLoss(FragmentManager manager, String tag) {
+        scheduleShow(manager, tag, true);
+    }
+
+    /**
+     * Dismiss the dialog once it was visible for the minimum show time. When it's still waiting for the show delay,
+     * it's not shown at all.
+     */
+    @Override
+    public void dismiss() {
+        scheduleDismiss(false);
+    }
+
+    @Override
+    public void dismissAllowingStateLoss() {
+        scheduleDismiss(true);
+    }
+
+    @Override
+    public void onCancel(DialogInterface dialog) {
+        if (mTask != null) {
+            mTask.cancel(true);
+        }
+        super.onCancel(dialog);
+    }
+
+
+    @Override
+    public void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        Bundle args = getArguments();
+        args.putInt(ARG_PROGRESS, getProgress());
+        args.putInt(ARG_SECONDARY_PROGRESS, getSecondaryProgress());
+        args.putInt(ARG_MAX, getMax());
+        args.putCharSequence(ARG_MESSAGE, getMessage());
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // an update posted to the old view might never run, the next view applies the latest values when created
+        if (mView != null) {
+            mView.removeCallbacks(mApplyUpdate);
+        }
+        mHandler.removeCallbacks(mApplyUpdate);
+        mUpdatePosted.set(false);
+        mView = null;
+        mProgressBar = null;
+        mMessageView = null;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mHandler.removeCallbacks(mPendingDismiss);
+        if (mTask == null) {
+            return;
+        }
+        mTask.unbind(this);
+        if (isRemoving() || getActivity() == null || getActivity().isFinishing()) {
+            // the dialog is gone for good, nobody waits for the result any more
+            mTask.cancel(true);
+            RetainedObjectStore.remove(getArguments().getString(ARG_TASK_TOKEN));
+        }
+        mTask = null;
+    }
+
+    /**
+     * @return task shown by the dialog, null when it has none or it was lost with the process
+     */
+    public Future<?> getTask() {
+        return mTask;
+    }
+
+    /**
+     * Set progress, can be called from any thread. Valid for determinate progress.
+     */
+    public void setProgress(int progress) {
+        mProgress = progress;
+        postUpdate();
+    }
+
+    /**
+     * Set secondary progress, can be called from any thread. Valid for determinate progress.
+     */
+    public void setSecondaryProgress(int secondaryProgress) {
+        mSecondaryProgress = secondaryProgress;
+        postUpdate();
+    }
+
+    /**
+     * Set maximum of the progress, can be called from any thread. Valid for determinate progress.
+     */
+    public void setMax(int max) {
+        mMax = max;
+        postUpdate();
+    }
+
+    /**
+     * Set message, can be called from any thread. Null hides the message of determinate progress.
+     */
+    public void setMessage(CharSequence message) {
+        mMessage = message;
+        mMessageSet = true;
+        postUpdate();
+    }
+
+    private boolean isDeterminate() {
+        return getArguments().getInt(ARG_MAX) > 0;
+    }
+
+    private int getProgress() {
+        int progress = mProgress;
+        return progress != UNSET ? progress : getArguments().getInt(ARG_PROGRESS);
+    }
+
+    private int getSecondaryProgress() {
+        int secondaryProgress = mSecondaryProgress;
+        return secondaryProgress != UNSET ? secondaryProgress : getArguments().getInt(ARG_SECONDARY_PROGRESS);
+    }
+
+    private int getMax() {
+        int max = mMax;
+        return max != UNSET ? max : getArguments().getInt(ARG_MAX);
+    }
+
+    private CharSequence getMessage() {
+        return mMessageSet ? mMessage : getArguments().getCharSequence(ARG_MESSAGE);
+    }
+
+    private void scheduleShow(final FragmentManager manager, final String tag, final boolean allowStateLoss) {
+        // the task runs during the show delay too
+        startTask();
+        long delay = getArguments().getLong(ARG_SHOW_DELAY);
+        if (delay <= 0) {
+            commitShow(manager, tag, allowStateLoss);
+            return;
+        }
+        // the host and its fragment manager may be destroyed within the delay, don't keep them alive
+        final WeakReference<FragmentManager> managerReference = new WeakReference<>(manager);
+        mPendingShow = new Runnable() {
+            @Override
+            public void run() {
+                FragmentManager manager = managerReference.get();
+                if (manager == null || manager.isDestroyed()) {
+                    cancelPendingShow();
+                    return;
+                }
+                mPendingShow = null;
+                stopObservingHost();
+                BoundTask task = getBoundTask();
+                if (task != null) {
+                    // bound again once attached, it can't dismiss the dialog while the commit is pending
+                    task.unbind(ProgressDialogFragment.this);
+                }
+                commitShow(manager, tag, allowStateLoss);
+            }
+        };
+        mHandler.postDelayed(mPendingShow, delay);
+
+        final LifecycleOwner host = getShowHost();
+        if (host != null) {
+            mHostObserver = new LifecycleEventObserver() {
+                @Override
+                public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+                    if (event == Lifecycle.Event.ON_DESTROY) {
+                        // also on configuration changes, the dialog was never part of the saved state
+                        cancelPendingShow();
+                    }
+                }
+            };
+            host.getLifecycle().addObserver(mHostObserver);
+            BoundTask task = getBoundTask();
+            if (task != null) {
+                // a task which finishes within the delay reports to the host, the dialog is never committed
+                task.bind(this);
+            }
+        }
+    }
+
+    private void cancelPendingShow() {
+        mHandler.removeCallbacks(mPendingShow);
+        mPendingShow = null;
+        stopObservingHost();
+        BoundTask task = getBoundTask();
+        if (task != null) {
+            task.unbind(this);
+        }
+        cancelUncommittedTask();
+        notifyFinished();
+    }
+
+    private void stopObservingHost() {
+        LifecycleOwner host = getShowHost();
+        if (mHostObserver != null && host != null) {
+            host.getLifecycle().removeObserver(mHostObserver);
+        }
+        mHostObserver = null;
+    }
+
+    private void commitShow(FragmentManager manager, String tag, boolean allowStateLoss) {
+        mShownAt = SystemClock.uptimeMillis();
+        // after a delay the activity might be stopped already
+        if (allowStateLoss || manager.isStateSaved()) {
+            super.showAllowingStateLoss(manager, tag);
+        } else {
+            super.show(manager, tag);
+        }
     }
 
+    private void scheduleDismiss(boolean allowStateLoss) {
+        if (mPendingShow != null) {
+            // nothing was committed, the dialog just won't be shown
+            cancelPendingShow();
+            return;
+        }
+        if (mShownAt == 0 && !isAdded()) {
+            // the pending show was already dropped
+            return;
+        }
+        long remaining = mShownAt + getArguments().getLong(ARG_MIN_SHOW_TIME) - SystemClock.uptimeMillis();
+        if (mShownAt != 0 && remaining > 0) {
+            getArguments().putBoolean(ARG_DISMISS_REQUESTED, true);
+            mHandler.removeCallbacks(mPendingDismiss);
+            mHandler.postDelayed(mPendingDismiss, remaining);
+        } else if (allowStateLoss) {
+            super.dismissAllowingStateLoss();
+        } else {
+            super.dismiss();
+        }
+    }
+
+    private void startTask() {
+        BoundTask task = getBoundTask();
+        if (task != null) {
+            task.start();
+        }
+    }
+
+    private BoundTask getBoundTask() {
+        Bundle args = getArguments();
+        String token = args != null ? args.getString(ARG_TASK_TOKEN) : null;
+        return token != null ? RetainedObjectStore.<BoundTask>get(token) : null;
+    }
+
+    /**
+     * The dialog was never created, so it won't release its task in {@link #onDestroy()}.
+     */
+    private void cancelUncommittedTask() {
+        releaseTask(getArguments());
+    }
+
+    private static void releaseTask(Bundle args) {
+        String token = args.getString(ARG_TASK_TOKEN);
+        if (token != null) {
+            Future<?> task = RetainedObjectStore.get(token);
+            if (task != null) {
+                task.cancel(true);
+            }
+            RetainedObjectStore.remove(token);
+        }
+    }
+
+    /**
+     * Called also while the dialog waits for the show delay, listeners are resolved from the builder's host then and
+     * the dismissal drops the pending show.
+     */
+    private void onTaskDone(Future<Object> task) {
+        if (!task.isCancelled()) {
+            try {
+                Object result = task.get();
+                List<IProgressTaskListener> listeners = getDialogListeners(IProgressTaskListener.class);
+                for (int i = 0; i < listeners.size(); i++) {
+                    listeners.get(i).onTaskCompleted(result, mRequestCode);
+                }
+            } catch (ExecutionException e) {
+                List<IProgressTaskListener> listeners = getDialogListeners(IProgressTaskListener.class);
+                for (int i = 0; i < listeners.size(); i++) {
+                    listeners.get(i).onTaskFailed(e.getCause(), mRequestCode);
+                }
+            } catch (InterruptedException e) {
+                // can't happen, the task is done and get() doesn't block
+                Thread.currentThread().interrupt();
+            }
+        }
+        // the task might finish while the activity is stopped
+        dismissAllowingStateLoss();
+    }
+
+    private void postUpdate() {
+        if (!mUpdatePosted.compareAndSet(false, true)) {
+            // the update which is already waiting shows these values too
+            return;
+        }
+        View view = mView;
+        if (view == null) {
+            // no view, the latest values are applied when it's created
+            mUpdatePosted.set(false);
+        } else if (ViewCompat.isAttachedToWindow(view)) {
+            ViewCompat.postOnAnimation(view, mApplyUpdate);
+        } else {
+            // created but not attached yet, an animation callback wouldn't run
+            mHandler.post(mApplyUpdate);
+        }
+    }
+
+    private void applyProgress() {
+        if (mMessageView == null) {
+            return;
+        }
+        CharSequence message = getMessage();
+        mMessageView.setText(message);
+        if (mProgressBar != null) {
+            mMessageView.setVisibility(TextUtils.isEmpty(message) ? View.GONE : View.VISIBLE);
+            mProgressBar.setMax(getMax());
+            mProgressBar.setProgress(getProgress());
+            mProgressBar.setSecondaryProgress(getSecondaryProgress());
+        }
+    }
+
+    /**
+     * Task which reports its completion to the dialog currently showing it, there may be a new one after a
+     * configuration change.
+     */
+    private static final class BoundTask extends FutureTask<Object> {
+
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        private final Executor mExecutor;
+
+        private final AtomicBoolean mStarted = new AtomicBoolean();
+
+        // main thread only
+        private ProgressDialogFragment mFragment;
+
+        private boolean mDelivered;
+
+        private final Runnable mDeliver = new Runnable() {
+            @Override
+            public void run() {
+                deliver();
+            }
+        };
+
+        @SuppressWarnings("unchecked")
+        BoundTask(Callable<?> callable, Executor executor) {
+            super((Callable<Object>) callable);
+            mExecutor = executor;
+        }
+
+        /**
+         * Submit the task to its executor, only the first call does.
+         */
+        void start() {
+            if (mStarted.compareAndSet(false, true)) {
+                mExecutor.execute(this);
+            }
+        }
+
+        void bind(ProgressDialogFragment fragment) {
+            mFragment = fragment;
+            // finished while there was no dialog
+            deliver();
+        }
+
+        void unbind(ProgressDialogFragment fragment) {
+            if (mFragment == fragment) {
+                mFragment = null;
+            }
+        }
+
+        @Override
+        protected void done() {
+            // runs on the worker thread, or the cancelling one
+            mHandler.post(mDeliver);
+        }
+
+        private void deliver() {
+            if (mFragment != null && !mDelivered && isDone()) {
+                mDelivered = true;
+                mFragment.onTaskDone(this);
+            }
+        }
+    }
 
     public static class ProgressDialogBuilder extends BaseDialogBuilder<ProgressDialogBuilder> {
 
         private CharSequence mTitle;
         private CharSequence mMessage;
+        private int mMax;
+        private int mProgress;
+        private int mSecondaryProgress;
+        private CharSequence mNegativeButtonText;
+        private Callable<?> mTask;
+        private Executor mExecutor;
+        private long mShowDelay;
+        private long mMinShowTime;
 
         protected ProgressDialogBuilder(Context context, FragmentManager fragmentManager) {
-            super(context, fragmentManager, ProgressDialogFragment.class);
+            super(context, fragmentManager, ProgressDialogFragment.class, SUPPLIER);
         }
 
         @Override
@@ -92,11 +660,115 @@ public class ProgressDialogFragment extends BaseDialogFragment {
             return this;
         }
 
+        /**
+         * Show determinate progress from 0 to max instead of the indeterminate one.
+         */
+        public ProgressDialogBuilder setMax(int max) {
+            mMax = max;
+            return this;
+        }
+
+        public ProgressDialogBuilder setProgress(int progress) {
+            mProgress = progress;
+            return this;
+        }
+
+        public ProgressDialogBuilder setSecondaryProgress(int secondaryProgress) {
+            mSecondaryProgress = secondaryProgress;
+            return this;
+        }
+
+        /**
+         * Button which cancels the dialog, and the task when there is one.
+         */
+        public ProgressDialogBuilder setNegativeButtonText(int textResourceId) {
+            mNegativeButtonText = mContext.getString(textResourceId);
+            return this;
+        }
+
+        public ProgressDialogBuilder setNegativeButtonText(CharSequence text) {
+            mNegativeButtonText = text;
+            return this;
+        }
+
+        /**
+         * Run the task on {@link AsyncTask#THREAD_POOL_EXECUTOR} while the dialog is shown.
+         *
+         * @see #setTask(Callable, Executor)
+         */
+        public ProgressDialogBuilder setTask(Callable<?> task) {
+            return setTask(task, AsyncTask.THREAD_POOL_EXECUTOR);
+        }
+
+        /**
+         * Run the task while the dialog is shown, it starts when the dialog is shown. When the task finishes the
+         * dialog dismisses itself and the result goes to {@link IProgressTaskListener}. Cancelling the dialog, or
+         * dismissing it before the task finishes, interrupts the task. The task should check
+         * {@link Thread#interrupted()} to stop early.
+         * <p>
+         * The task is kept in memory only, if the process dies the dialog is cancelled when restored.
+         */
+        public ProgressDialogBuilder setTask(Callable<?> task, Executor executor) {
+            mTask = task;
+            mExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Show the dialog only if it's not dismissed within the delay. A dialog dismissed sooner costs no fragment
+         * transaction, inflation or window. A task set with {@link #setTask(Callable, Executor)} which finishes within
+         * the delay delivers its result to the activity or target fragment right away, without showing the dialog.
+         * <p>
+         * When the activity is destroyed within the delay, including configuration changes, the dialog is dropped and
+         * its task cancelled.
+         *
+         * @param showDelay delay in milliseconds
+         */
+        public ProgressDialogBuilder setShowDelay(long showDelay) {
+            mShowDelay = showDelay;
+            return this;
+        }
+
+        /**
+         * Once shown, keep the dialog visible at least for given time, so it doesn't just flicker. Dismissing it
+         * sooner dismisses it when the time is up, cancelling it by the user is immediate.
+         *
+         * @param minShowTime time in milliseconds
+         */
+        public ProgressDialogBuilder setMinShowTime(long minShowTime) {
+            mMinShowTime = minShowTime;
+            return this;
+        }
+
+        @Override
+        protected void releaseArguments(Bundle args) {
+            // the task wasn't started, just drop it
+            releaseTask(args);
+        }
+
+        @Override
+        protected Bundle prepareTemplateArguments() {
+            if (mTask != null) {
+                throw new IllegalStateException("a task runs once, it can't be part of a template");
+            }
+            return super.prepareTemplateArguments();
+        }
+
         @Override
         protected Bundle prepareArguments() {
             Bundle args = new Bundle();
             args.putCharSequence(SimpleDialogFragment.ARG_MESSAGE, mMessage);
             args.putCharSequence(SimpleDialogFragment.ARG_TITLE, mTitle);
+            args.putInt(ARG_MAX, mMax);
+            args.putInt(ARG_PROGRESS, mProgress);
+            args.putInt(ARG_SECONDARY_PROGRESS, mSecondaryProgress);
+            args.putCharSequence(ARG_NEGATIVE_BUTTON, mNegativeButtonText);
+            args.putLong(ARG_SHOW_DELAY, mShowDelay);
+            args.putLong(ARG_MIN_SHOW_TIME, mMinShowTime);
+            if (mTask != null) {
+                // started once the dialog is shown, arguments may be dropped before that
+                args.putString(ARG_TASK_TOKEN, RetainedObjectStore.put(new BoundTask(mTask, mExecutor)));
+            }
 
             return args;
         }
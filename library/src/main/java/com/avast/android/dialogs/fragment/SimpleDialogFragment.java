@@ -29,6 +29,7 @@ import androidx.fragment.app.FragmentManager;
 
 import com.avast.android.dialogs.core.BaseDialogBuilder;
 import com.avast.android.dialogs.core.BaseDialogFragment;
+import com.avast.android.dialogs.iface.IDialogFragmentSupplier;
 import com.avast.android.dialogs.iface.INegativeButtonDialogListener;
 import com.avast.android.dialogs.iface.INeutralButtonDialogListener;
 import com.avast.android.dialogs.iface.IPositiveButtonDialogListener;
@@ -44,15 +45,22 @@ import com.avast.android.dialogs.iface.IPositiveButtonDialogListener;
  */
 public class SimpleDialogFragment extends BaseDialogFragment {
 
-    protected final static String ARG_MESSAGE = "message";
+    protected final static String ARG_MESSAGE = BaseDialogBuilder.ARG_MESSAGE;
     protected final static String ARG_TITLE = "title";
     protected final static String ARG_POSITIVE_BUTTON = "positive_button";
     protected final static String ARG_NEGATIVE_BUTTON = "negative_button";
     protected final static String ARG_NEUTRAL_BUTTON = "neutral_button";
 
 
+    private static final IDialogFragmentSupplier<SimpleDialogFragment> SUPPLIER = new IDialogFragmentSupplier<SimpleDialogFragment>() {
+        @Override
+        public SimpleDialogFragment get() {
+            return new SimpleDialogFragment();
+        }
+    };
+
     public static SimpleDialogBuilder createBuilder(Context context, FragmentManager fragmentManager) {
-        return new SimpleDialogBuilder(context, fragmentManager, SimpleDialogFragment.class);
+        return new SimpleDialogBuilder(context, fragmentManager, SimpleDialogFragment.class, SUPPLIER);
     }
 
     @Override
@@ -82,8 +90,9 @@ public class SimpleDialogFragment extends BaseDialogFragment {
             builder.setPositiveButton(positiveButtonText, new View.OnClickListener() {
                 @Override
                 public void onClick(View view) {
-                    for (IPositiveButtonDialogListener listener : getPositiveButtonDialogListeners()) {
-                        listener.onPositiveButtonClicked(mRequestCode);
+                    List<IPositiveButtonDialogListener> listeners = getPositiveButtonDialogListeners();
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).onPositiveButtonClicked(mRequestCode);
                     }
                     dismiss();
                 }
@@ -95,8 +104,9 @@ public class SimpleDialogFragment extends BaseDialogFragment {
             builder.setNegativeButton(negativeButtonText, new View.OnClickListener() {
                 @Override
                 public void onClick(View view) {
-                    for (INegativeButtonDialogListener listener : getNegativeButtonDialogListeners()) {
-                        listener.onNegativeButtonClicked(mRequestCode);
+                    List<INegativeButtonDialogListener> listeners = getNegativeButtonDialogListeners();
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).onNegativeButtonClicked(mRequestCode);
                     }
                     dismiss();
                 }
@@ -108,8 +118,9 @@ public class SimpleDialogFragment extends BaseDialogFragment {
             builder.setNeutralButton(neutralButtonText, new View.OnClickListener() {
                 @Override
                 public void onClick(View view) {
-                    for (INeutralButtonDialogListener listener : getNeutralButtonDialogListeners()) {
-                        listener.onNeutralButtonClicked(mRequestCode);
+                    List<INeutralButtonDialogListener> listeners = getNeutralButtonDialogListeners();
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).onNeutralButtonClicked(mRequestCode);
                     }
                     dismiss();
                 }
@@ -185,6 +196,11 @@ public class SimpleDialogFragment extends BaseDialogFragment {
             super(context, fragmentManager, clazz);
         }
 
+        protected SimpleDialogBuilder(Context context, FragmentManager fragmentManager, Class<? extends SimpleDialogFragment> clazz,
+                                      IDialogFragmentSupplier<? extends SimpleDialogFragment> supplier) {
+            super(context, fragmentManager, clazz, supplier);
+        }
+
         @Override
         protected SimpleDialogBuilder self() {
             return this;
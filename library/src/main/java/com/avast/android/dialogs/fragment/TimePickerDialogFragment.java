@@ -11,6 +11,7 @@ import androidx.fragment.app.FragmentManager;
 
 import com.avast.android.dialogs.R;
 import com.avast.android.dialogs.core.BaseDialogFragment;
+import com.avast.android.dialogs.iface.IDialogFragmentSupplier;
 
 
 
@@ -26,8 +27,15 @@ public class TimePickerDialogFragment extends DatePickerDialogFragment {
     Calendar mCalendar;
 
 
+    private static final IDialogFragmentSupplier<TimePickerDialogFragment> SUPPLIER = new IDialogFragmentSupplier<TimePickerDialogFragment>() {
+        @Override
+        public TimePickerDialogFragment get() {
+            return new TimePickerDialogFragment();
+        }
+    };
+
     public static SimpleDialogBuilder createBuilder(Context context, FragmentManager fragmentManager) {
-        return new SimpleDialogBuilder(context, fragmentManager, TimePickerDialogFragment.class);
+        return new SimpleDialogBuilder(context, fragmentManager, TimePickerDialogFragment.class, SUPPLIER);
     }
 
     @Override
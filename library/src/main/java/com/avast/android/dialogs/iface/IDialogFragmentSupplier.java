@@ -0,0 +1,12 @@
+package com.avast.android.dialogs.iface;
+
+import com.avast.android.dialogs.core.BaseDialogFragment;
+
+/**
+ * Creates new instances of a dialog for its builder with a plain constructor call, instead of instantiating the
+ * dialog class by reflection.
+ */
+public interface IDialogFragmentSupplier<T extends BaseDialogFragment> {
+
+    public T get();
+}
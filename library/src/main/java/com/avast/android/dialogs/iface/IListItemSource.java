@@ -0,0 +1,26 @@
+package com.avast.android.dialogs.iface;
+
+/**
+ * Source of items for ListDialogFragment which are loaded page by page as the list scrolls, so the dialog can show
+ * huge lists without loading all items up front.
+ * <p>
+ * The source is kept in memory while the dialog exists (also across configuration changes), it's not parcelled.
+ *
+ * @see com.avast.android.dialogs.fragment.ListDialogFragment.SimpleListDialogBuilder#setItemSource(IListItemSource)
+ */
+public interface IListItemSource {
+
+    /**
+     * @return total number of items, must not change while the dialog is shown
+     */
+    public int getCount();
+
+    /**
+     * Load a page of items. Called on a background thread.
+     *
+     * @param offset position of the first item
+     * @param count  number of items to load
+     * @return exactly {@code count} items
+     */
+    public CharSequence[] loadItems(int offset, int count);
+}
@@ -0,0 +1,13 @@
+package com.avast.android.dialogs.iface;
+
+/**
+ * Interface for ProgressDialogFragment showing a task.
+ * Implement it in Activity or Fragment to receive the result of the task. Cancelled tasks are reported to
+ * {@link ISimpleDialogCancelListener}.
+ */
+public interface IProgressTaskListener {
+
+    public void onTaskCompleted(Object result, int requestCode);
+
+    public void onTaskFailed(Throwable error, int requestCode);
+}
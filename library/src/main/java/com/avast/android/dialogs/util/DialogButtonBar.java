@@ -0,0 +1,271 @@
+package com.avast.android.dialogs.util;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.text.method.TransformationMethod;
+import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+
+import androidx.core.view.ViewCompat;
+
+import com.avast.android.dialogs.R;
+
+/**
+ * Bar holding the positive, negative and neutral button of a dialog.
+ * <p>
+ * Buttons are laid out horizontally (neutral on the left, negative and positive on the right) when they fit, and
+ * stacked below each other otherwise. The decision is made in {@link #onMeasure(int, int)} from real text widths,
+ * every button is measured only once. The text width of a button is measured again only when its text, text
+ * transformation, typeface or text size changes.
+ */
+public class DialogButtonBar extends ViewGroup {
+
+    private static final int STACKED_GRAVITY = Gravity.CENTER_VERTICAL | Gravity.END;
+
+    private final int mHorizontalHeight;
+
+    private final int mStackedButtonHeight;
+
+    private final int mStackedButtonPadding;
+
+    private Button mPositiveButton;
+
+    private Button mNegativeButton;
+
+    private Button mNeutralButton;
+
+    private boolean mStacked;
+
+    /**
+     * Horizontal paddings and gravity of buttons as inflated, used when not stacked
+     */
+    private int mButtonPaddingLeft;
+
+    private int mButtonPaddingRight;
+
+    private int mButtonGravity;
+
+    /**
+     * Text widths of the children, by child index
+     */
+    private TextWidth[] mTextWidths;
+
+    public DialogButtonBar(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mHorizontalHeight = getResources().getDimensionPixelSize(R.dimen.grid_12);
+        mStackedButtonHeight = getResources().getDimensionPixelSize(R.dimen.grid_12);
+        mStackedButtonPadding = getResources().getDimensionPixelSize(R.dimen.grid_8);
+    }
+
+    @Override
+    protected void onFinishInflate() {
+        super.onFinishInflate();
+        mPositiveButton = (Button) findViewById(R.id.sdl_button_positive);
+        mNegativeButton = (Button) findViewById(R.id.sdl_button_negative);
+        mNeutralButton = (Button) findViewById(R.id.sdl_button_neutral);
+        mButtonPaddingLeft = mPositiveButton.getPaddingLeft();
+        mButtonPaddingRight = mPositiveButton.getPaddingRight();
+        mButtonGravity = mPositiveButton.getGravity();
+        mTextWidths = new TextWidth[getChildCount()];
+        for (int i = 0; i < mTextWidths.length; i++) {
+            mTextWidths[i] = new TextWidth();
+        }
+    }
+
+    public Button getPositiveButton() {
+        return mPositiveButton;
+    }
+
+    public Button getNegativeButton() {
+        return mNegativeButton;
+    }
+
+    public Button getNeutralButton() {
+        return mNeutralButton;
+    }
+
+    /**
+     * @return true if the buttons didn't fit next to each other in the last measure pass
+     */
+    public boolean isStacked() {
+        return mStacked;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+
+        boolean stacked = widthMode != MeasureSpec.UNSPECIFIED && getHorizontalWidth() > width;
+        if (stacked != mStacked) {
+            mStacked = stacked;
+            for (int i = 0; i < getChildCount(); i++) {
+                applyMode((Button) getChildAt(i));
+            }
+        }
+
+        int measuredWidth;
+        int measuredHeight = 0;
+        if (stacked) {
+            int childWidthSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+            int childHeightSpec = MeasureSpec.makeMeasureSpec(mStackedButtonHeight, MeasureSpec.EXACTLY);
+            for (int i = 0; i < getChildCount(); i++) {
+                View child = getChildAt(i);
+                if (child.getVisibility() != GONE) {
+                    child.measure(childWidthSpec, childHeightSpec);
+                    measuredHeight += child.getMeasuredHeight();
+                }
+            }
+            measuredWidth = width;
+        } else {
+            int usedWidth = getPaddingLeft() + getPaddingRight();
+            for (int i = 0; i < getChildCount(); i++) {
+                View child = getChildAt(i);
+                if (child.getVisibility() != GONE) {
+                    measureChildWithMargins(child, widthMeasureSpec, usedWidth, heightMeasureSpec, 0);
+                    MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+                    usedWidth += child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
+                }
+            }
+            measuredWidth = widthMode == MeasureSpec.EXACTLY ? width : usedWidth;
+            measuredHeight = mHorizontalHeight;
+        }
+        setMeasuredDimension(resolveSize(measuredWidth, widthMeasureSpec),
+                resolveSize(measuredHeight, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if (mStacked) {
+            int top = 0;
+            top = layoutStacked(mPositiveButton, top);
+            top = layoutStacked(mNegativeButton, top);
+            layoutStacked(mNeutralButton, top);
+        } else {
+            int height = b - t;
+            int right = r - l - getPaddingRight();
+            right = layoutHorizontally(mPositiveButton, right, height, false);
+            layoutHorizontally(mNegativeButton, right, height, false);
+            layoutHorizontally(mNeutralButton, getPaddingLeft(), height, true);
+        }
+    }
+
+    private int layoutStacked(View button, int top) {
+        if (button.getVisibility() == GONE) {
+            return top;
+        }
+        button.layout(0, top, button.getMeasuredWidth(), top + button.getMeasuredHeight());
+        return top + button.getMeasuredHeight();
+    }
+
+    /**
+     * @return the next free edge
+     */
+    private int layoutHorizontally(View button, int edge, int height, boolean fromLeft) {
+        if (button.getVisibility() == GONE) {
+            return edge;
+        }
+        MarginLayoutParams lp = (MarginLayoutParams) button.getLayoutParams();
+        int top = (height - button.getMeasuredHeight()) / 2;
+        if (fromLeft) {
+            int left = edge + lp.leftMargin;
+            button.layout(left, top, left + button.getMeasuredWidth(), top + button.getMeasuredHeight());
+            return left + button.getMeasuredWidth() + lp.rightMargin;
+        } else {
+            int right = edge - lp.rightMargin;
+            button.layout(right - button.getMeasuredWidth(), top, right, top + button.getMeasuredHeight());
+            return right - button.getMeasuredWidth() - lp.leftMargin;
+        }
+    }
+
+    /**
+     * Width needed to show all visible buttons next to each other, without measuring them.
+     */
+    private int getHorizontalWidth() {
+        int width = getPaddingLeft() + getPaddingRight();
+        for (int i = 0; i < getChildCount(); i++) {
+            Button button = (Button) getChildAt(i);
+            if (button.getVisibility() != GONE) {
+                MarginLayoutParams lp = (MarginLayoutParams) button.getLayoutParams();
+                int textWidth = (int) Math.ceil(mTextWidths[i].get(button));
+                int buttonWidth = Math.max(ViewCompat.getMinimumWidth(button),
+                        mButtonPaddingLeft + textWidth + mButtonPaddingRight);
+                width += buttonWidth + lp.leftMargin + lp.rightMargin;
+            }
+        }
+        return width;
+    }
+
+    private void applyMode(Button button) {
+        if (mStacked) {
+            button.setPadding(mStackedButtonPadding, button.getPaddingTop(), mStackedButtonPadding,
+                    button.getPaddingBottom());
+            button.setGravity(STACKED_GRAVITY);
+        } else {
+            button.setPadding(mButtonPaddingLeft, button.getPaddingTop(), mButtonPaddingRight,
+                    button.getPaddingBottom());
+            button.setGravity(mButtonGravity);
+        }
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof MarginLayoutParams;
+    }
+
+    @Override
+    protected ViewGroup.LayoutParams generateDefaultLayoutParams() {
+        return new MarginLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public ViewGroup.LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new MarginLayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected ViewGroup.LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return new MarginLayoutParams(p);
+    }
+
+    /**
+     * Width of the last measured text of one button. Compared by reference, a TextView keeps the same text instance
+     * until it's set again.
+     */
+    private static class TextWidth {
+
+        private CharSequence mText;
+
+        private TransformationMethod mTransformation;
+
+        private Typeface mTypeface;
+
+        private float mTextSize;
+
+        private float mWidth;
+
+        float get(Button button) {
+            CharSequence text = button.getText();
+            TransformationMethod transformation = button.getTransformationMethod();
+            Typeface typeface = button.getPaint().getTypeface();
+            float textSize = button.getTextSize();
+            if (text == mText && transformation == mTransformation && typeface == mTypeface
+                    && textSize == mTextSize) {
+                return mWidth;
+            }
+            mText = text;
+            mTransformation = transformation;
+            mTypeface = typeface;
+            mTextSize = textSize;
+            if (transformation != null) {
+                // e.g. all caps
+                text = transformation.getTransformation(text, button);
+            }
+            mWidth = button.getPaint().measureText(text, 0, text.length());
+            return mWidth;
+        }
+    }
+}
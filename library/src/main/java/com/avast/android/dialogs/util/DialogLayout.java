@@ -0,0 +1,112 @@
+package com.avast.android.dialogs.util;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.avast.android.dialogs.R;
+
+/**
+ * Root of the dialog layout. Places children below each other in a single measure and layout pass.
+ * <p>
+ * Children marked with {@code sdlLayoutContent} (message, custom view, list) share the height which is left after
+ * all the other children (title, divider, buttons) are measured, the same way a weighted LinearLayout would, but
+ * without measuring anything twice.
+ */
+public class DialogLayout extends ViewGroup {
+
+    public DialogLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int usedHeight = 0;
+        int maxWidth = 0;
+        // fixed parts first, content gets whatever is left
+        for (int pass = 0; pass < 2; pass++) {
+            boolean contentPass = pass == 1;
+            for (int i = 0; i < getChildCount(); i++) {
+                View child = getChildAt(i);
+                LayoutParams lp = (LayoutParams) child.getLayoutParams();
+                if (child.getVisibility() == GONE || lp.content != contentPass) {
+                    continue;
+                }
+                measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, usedHeight);
+                usedHeight += child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
+                maxWidth = Math.max(maxWidth, child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin);
+            }
+        }
+        setMeasuredDimension(
+                resolveSize(maxWidth + getPaddingLeft() + getPaddingRight(), widthMeasureSpec),
+                resolveSize(usedHeight + getPaddingTop() + getPaddingBottom(), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        int top = getPaddingTop();
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            int left = getPaddingLeft() + lp.leftMargin;
+            top += lp.topMargin;
+            child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+            top += child.getMeasuredHeight() + lp.bottomMargin;
+        }
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return new LayoutParams(p);
+    }
+
+    public static class LayoutParams extends MarginLayoutParams {
+
+        /**
+         * Child is a part of the content, it's measured after the others and gets the remaining height.
+         */
+        public boolean content;
+
+        public LayoutParams(Context context, AttributeSet attrs) {
+            super(context, attrs);
+            TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SDLDialogLayout_Layout);
+            content = a.getBoolean(R.styleable.SDLDialogLayout_Layout_sdlLayoutContent, false);
+            a.recycle();
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+            if (source instanceof LayoutParams) {
+                content = ((LayoutParams) source).content;
+            }
+            if (source instanceof MarginLayoutParams) {
+                MarginLayoutParams margins = (MarginLayoutParams) source;
+                setMargins(margins.leftMargin, margins.topMargin, margins.rightMargin, margins.bottomMargin);
+            }
+        }
+    }
+}
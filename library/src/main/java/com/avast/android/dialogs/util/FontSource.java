@@ -0,0 +1,100 @@
+package com.avast.android.dialogs.util;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Build;
+
+import androidx.annotation.FontRes;
+import androidx.annotation.Nullable;
+import androidx.core.content.res.ResourcesCompat;
+
+/**
+ * Source of the regular (message) and medium (title, buttons) typeface used by the dialogs.
+ * Set it with {@link TypefaceHelper#setFontSource(FontSource)}.
+ * <p>
+ * Only {@link #ASSETS} opens the Roboto TTF files bundled with the library. A source returning null leaves the
+ * typeface to the text appearance of the view.
+ */
+public abstract class FontSource {
+
+    /**
+     * Roboto bundled in the library assets, the default.
+     */
+    public static final FontSource ASSETS = new FontSource() {
+        @Override
+        public Typeface getRegular(Context context) {
+            return TypefaceHelper.get(context, TypefaceHelper.ROBOTO_REGULAR);
+        }
+
+        @Override
+        public Typeface getMedium(Context context) {
+            return TypefaceHelper.get(context, TypefaceHelper.ROBOTO_MEDIUM);
+        }
+    };
+
+    /**
+     * System sans-serif, {@code sans-serif-medium} on Lollipop and newer, bold before that.
+     */
+    public static final FontSource SYSTEM = new FontSource() {
+
+        private final Typeface mRegular = Typeface.create("sans-serif", Typeface.NORMAL);
+
+        private final Typeface mMedium = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                ? Typeface.create("sans-serif-medium", Typeface.NORMAL)
+                : Typeface.create("sans-serif", Typeface.BOLD);
+
+        @Override
+        public Typeface getRegular(Context context) {
+            return mRegular;
+        }
+
+        @Override
+        public Typeface getMedium(Context context) {
+            return mMedium;
+        }
+    };
+
+    /**
+     * Don't set any typeface, inherit it from the theme and text appearance.
+     */
+    public static final FontSource INHERIT = new FontSource() {
+        @Override
+        public Typeface getRegular(Context context) {
+            return null;
+        }
+
+        @Override
+        public Typeface getMedium(Context context) {
+            return null;
+        }
+    };
+
+    /**
+     * Fonts from {@code res/font}.
+     */
+    public static FontSource resources(@FontRes final int regularFontId, @FontRes final int mediumFontId) {
+        return new FontSource() {
+            @Override
+            public Typeface getRegular(Context context) {
+                return ResourcesCompat.getFont(context, regularFontId);
+            }
+
+            @Override
+            public Typeface getMedium(Context context) {
+                return ResourcesCompat.getFont(context, mediumFontId);
+            }
+        };
+    }
+
+    /**
+     * @return typeface for messages or null to keep the one from text appearance
+     */
+    @Nullable
+    public abstract Typeface getRegular(Context context);
+
+    /**
+     * @return typeface for titles and buttons or null to keep the one from text appearance
+     */
+    @Nullable
+    public abstract Typeface getMedium(Context context);
+}
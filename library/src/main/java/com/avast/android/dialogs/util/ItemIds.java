@@ -0,0 +1,93 @@
+package com.avast.android.dialogs.util;
+
+import java.util.Arrays;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Stable ids of list items and the reverse lookup from an id to its position, without boxing.
+ * <p>
+ * Without explicit ids the id of an item is its position.
+ */
+public final class ItemIds {
+
+    @Nullable
+    private final long[] mIds;
+
+    private final int mCount;
+
+    /**
+     * Open addressing table, id -> position, built on the first lookup
+     */
+    private long[] mKeys;
+
+    private int[] mPositions;
+
+    /**
+     * @param ids unique ids, one for each item, null to use positions as ids
+     */
+    public ItemIds(@Nullable long[] ids, int count) {
+        if (ids != null && ids.length != count) {
+            throw new IllegalArgumentException("expected " + count + " ids, got " + ids.length);
+        }
+        mIds = ids;
+        mCount = count;
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    public long getId(int position) {
+        return mIds != null ? mIds[position] : position;
+    }
+
+    /**
+     * @return position of the item with given id or -1 when there is none
+     */
+    public int indexOf(long id) {
+        if (mIds == null) {
+            return id >= 0 && id < mCount ? (int) id : -1;
+        }
+        if (mKeys == null) {
+            buildTable();
+        }
+        int mask = mKeys.length - 1;
+        for (int slot = hash(id) & mask; mPositions[slot] != -1; slot = (slot + 1) & mask) {
+            if (mKeys[slot] == id) {
+                return mPositions[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return explicit ids or null when positions are used
+     */
+    @Nullable
+    public long[] toArray() {
+        return mIds;
+    }
+
+    private void buildTable() {
+        int capacity = Integer.highestOneBit(Math.max(mCount, 1) * 2) * 2;
+        mKeys = new long[capacity];
+        mPositions = new int[capacity];
+        // position -1 marks a free slot, any key is a valid id
+        Arrays.fill(mPositions, -1);
+        int mask = capacity - 1;
+        for (int i = 0; i < mCount; i++) {
+            int slot = hash(mIds[i]) & mask;
+            while (mPositions[slot] != -1) {
+                slot = (slot + 1) & mask;
+            }
+            mKeys[slot] = mIds[i];
+            mPositions[slot] = i;
+        }
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
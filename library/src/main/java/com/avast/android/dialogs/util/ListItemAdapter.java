@@ -0,0 +1,177 @@
+package com.avast.android.dialogs.util;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Checkable;
+import android.widget.TextView;
+
+import androidx.annotation.LayoutRes;
+
+import com.avast.android.dialogs.R;
+
+/**
+ * Adapter of list dialog rows. Views of a row are looked up once and kept in a {@link ViewHolder} in the row's tag.
+ * <p>
+ * Items can be shown through a mapping to their original positions (see {@link #setPositions(int[])}), e.g. when
+ * filtered. Positions passed to {@link #onBindViewHolder(ViewHolder, CharSequence, int)} are always original
+ * positions, item ids are original positions too unless set with {@link #setItems(CharSequence[], ItemIds)}.
+ * Override {@link #onCreateViewHolder(View)} and {@link #onBindViewHolder(ViewHolder, CharSequence, int)} to show
+ * custom row content.
+ */
+public class ListItemAdapter extends BaseAdapter {
+
+    public static class ViewHolder {
+
+        public final View itemView;
+
+        /**
+         * {@code R.id.sdl_text} of the row, null if there is none
+         */
+        public final TextView text;
+
+        /**
+         * The row itself when it's {@link Checkable}, otherwise null
+         */
+        public final Checkable checkable;
+
+        public ViewHolder(View itemView) {
+            this.itemView = itemView;
+            text = (TextView) itemView.findViewById(R.id.sdl_text);
+            checkable = itemView instanceof Checkable ? (Checkable) itemView : null;
+        }
+    }
+
+    private CharSequence[] mItems;
+
+    /**
+     * Ids of the items, null when the ids are positions
+     */
+    private ItemIds mIds;
+
+    @LayoutRes
+    private final int mItemLayoutId;
+
+    /**
+     * Taken from the first list, so rows follow the light/dark theme of the dialog
+     */
+    private LayoutInflater mInflater;
+
+    /**
+     * Original positions of shown items, null to show all of them
+     */
+    private int[] mPositions;
+
+    private SelectionBitSet mSelection;
+
+    public ListItemAdapter(CharSequence[] items, @LayoutRes int itemLayoutId) {
+        this(items, null, itemLayoutId);
+    }
+
+    /**
+     * @param ids stable ids of the items, null to use positions
+     */
+    public ListItemAdapter(CharSequence[] items, ItemIds ids, @LayoutRes int itemLayoutId) {
+        mItems = items;
+        mIds = ids;
+        mItemLayoutId = itemLayoutId;
+    }
+
+    /**
+     * @param selection checked state bound to {@link Checkable} rows, null for no checked state
+     */
+    public void setSelection(SelectionBitSet selection) {
+        mSelection = selection;
+    }
+
+    /**
+     * Replace the items, call {@link #notifyDataSetChanged()} afterwards. Positions set with
+     * {@link #setPositions(int[])} must be set again for the new items.
+     *
+     * @param ids stable ids of the items
+     */
+    public void setItems(CharSequence[] items, ItemIds ids) {
+        mItems = items;
+        mIds = ids;
+        mPositions = null;
+    }
+
+    /**
+     * @return false when the adapter always shows all of its items, {@link #setPositions(int[])} accepts only null
+     * then
+     */
+    public boolean isFilterable() {
+        return true;
+    }
+
+    /**
+     * @param positions original positions of items to show, null to show all of them
+     * @throws IllegalStateException when positions are given to an adapter which is not {@link #isFilterable()}
+     */
+    public void setPositions(int[] positions) {
+        if (positions != null && !isFilterable()) {
+            throw new IllegalStateException(getClass().getSimpleName() + " can't be filtered");
+        }
+        mPositions = positions;
+    }
+
+    public int getOriginalPosition(int position) {
+        return mPositions != null ? mPositions[position] : position;
+    }
+
+    @Override
+    public int getCount() {
+        return mPositions != null ? mPositions.length : mItems.length;
+    }
+
+    @Override
+    public CharSequence getItem(int position) {
+        return mItems[getOriginalPosition(position)];
+    }
+
+    @Override
+    public long getItemId(int position) {
+        int originalPosition = getOriginalPosition(position);
+        return mIds != null ? mIds.getId(originalPosition) : originalPosition;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        ViewHolder holder;
+        if (convertView == null) {
+            if (mInflater == null) {
+                mInflater = LayoutInflater.from(parent.getContext());
+            }
+            convertView = mInflater.inflate(mItemLayoutId, parent, false);
+            holder = onCreateViewHolder(convertView);
+            convertView.setTag(holder);
+        } else {
+            holder = (ViewHolder) convertView.getTag();
+        }
+        onBindViewHolder(holder, getItem(position), getOriginalPosition(position));
+        return convertView;
+    }
+
+    protected ViewHolder onCreateViewHolder(View itemView) {
+        return new ViewHolder(itemView);
+    }
+
+    /**
+     * @param item     the item, null for a placeholder of an item which is not loaded yet
+     * @param position original position of the item
+     */
+    protected void onBindViewHolder(ViewHolder holder, CharSequence item, int position) {
+        if (holder.text != null) {
+            holder.text.setText(item);
+        }
+        if (holder.checkable != null && mSelection != null) {
+            holder.checkable.setChecked(mSelection.isChecked(position));
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.avast.android.dialogs.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+
+/**
+ * Filters list items on a background executor. Items are split into words and the words are kept sorted, a query
+ * matches items which have a word starting with each word of the query. The index is built once, on the first
+ * query or {@link #prepare()}.
+ * <p>
+ * Only the result of the latest query is delivered, older queries are dropped, even when they are already running.
+ */
+public class ListItemFilter {
+
+    public interface OnFilterResultListener {
+
+        /**
+         * Called on the main thread.
+         *
+         * @param positions original positions of matching items in ascending order, null when the query is empty
+         *                  and all items should be shown
+         */
+        public void onFilterResult(@Nullable int[] positions);
+    }
+
+    private final CharSequence[] mItems;
+
+    private final Executor mExecutor;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    private final Locale mLocale = Locale.getDefault();
+
+    private volatile Index mIndex;
+
+    public ListItemFilter(CharSequence[] items) {
+        this(items, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    public ListItemFilter(CharSequence[] items, Executor executor) {
+        mItems = items;
+        mExecutor = executor;
+    }
+
+    /**
+     * Build the index in the background ahead of the first query.
+     */
+    public void prepare() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                getIndex();
+            }
+        });
+    }
+
+    /**
+     * Filter items, the result replaces the result of any previous query.
+     */
+    @MainThread
+    public void filter(CharSequence query, final OnFilterResultListener listener) {
+        final int generation = mGeneration.incrementAndGet();
+        final String text = query != null ? query.toString() : "";
+        if (text.trim().length() == 0) {
+            listener.onFilterResult(null);
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration.get()) {
+                    return;
+                }
+                final int[] positions = getIndex().search(tokenize(text), generation);
+                if (positions == null) {
+                    // cancelled by a newer query
+                    return;
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration.get()) {
+                            listener.onFilterResult(positions);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drop the running query, no result is delivered until the next {@link #filter(CharSequence,
+     * OnFilterResultListener)}.
+     */
+    public void cancel() {
+        mGeneration.incrementAndGet();
+    }
+
+    private Index getIndex() {
+        Index index = mIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = mIndex;
+                if (index == null) {
+                    index = new Index();
+                    mIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String lower = text.toLowerCase(mLocale);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start == -1) {
+                start = i;
+            } else if (!wordChar && start != -1) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Words of all items in sorted order, each with the position of its item.
+     */
+    private class Index {
+
+        private final String[] mWords;
+
+        private final int[] mPositions;
+
+        Index() {
+            List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < mItems.length; i++) {
+                if (mItems[i] != null) {
+                    for (String word : tokenize(mItems[i].toString())) {
+                        entries.add(new Entry(word, i));
+                    }
+                }
+            }
+            Entry[] sorted = entries.toArray(new Entry[entries.size()]);
+            Arrays.sort(sorted, new Comparator<Entry>() {
+                @Override
+                public int compare(Entry lhs, Entry rhs) {
+                    return lhs.word.compareTo(rhs.word);
+                }
+            });
+            mWords = new String[sorted.length];
+            mPositions = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                mWords[i] = sorted[i].word;
+                mPositions[i] = sorted[i].position;
+            }
+        }
+
+        /**
+         * @return matching positions or null when cancelled
+         */
+        int[] search(List<String> queryWords, int generation) {
+            int words = (mItems.length + 63) >>> 6;
+            long[] matched = null;
+            for (int q = 0; q < queryWords.size(); q++) {
+                if (generation != mGeneration.get()) {
+                    return null;
+                }
+                String prefix = queryWords.get(q);
+                long[] matchedWord = new long[words];
+                int i = Arrays.binarySearch(mWords, prefix);
+                if (i < 0) {
+                    i = -i - 1;
+                }
+                // equal words may precede the one found
+                while (i > 0 && mWords[i - 1].equals(prefix)) {
+                    i--;
+                }
+                for (; i < mWords.length && mWords[i].startsWith(prefix); i++) {
+                    int position = mPositions[i];
+                    matchedWord[position >>> 6] |= 1L << position;
+                }
+                if (matched == null) {
+                    matched = matchedWord;
+                } else {
+                    for (int w = 0; w < words; w++) {
+                        matched[w] &= matchedWord[w];
+                    }
+                }
+            }
+            if (matched == null) {
+                return new int[0];
+            }
+            int count = 0;
+            for (long word : matched) {
+                count += Long.bitCount(word);
+            }
+            int[] positions = new int[count];
+            int j = 0;
+            for (int w = 0; w < words; w++) {
+                long word = matched[w];
+                while (word != 0) {
+                    positions[j++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return positions;
+        }
+    }
+
+    private static class Entry {
+
+        final String word;
+
+        final int position;
+
+        Entry(String word, int position) {
+            this.word = word;
+            this.position = position;
+        }
+    }
+}
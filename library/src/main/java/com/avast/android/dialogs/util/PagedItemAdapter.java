@@ -0,0 +1,51 @@
+package com.avast.android.dialogs.util;
+
+import androidx.annotation.LayoutRes;
+
+/**
+ * Adapter showing items of {@link PagedItemLoader}. Rows which are not loaded yet are shown empty, as placeholders,
+ * and are filled in when their page arrives.
+ */
+public class PagedItemAdapter extends ListItemAdapter implements PagedItemLoader.OnPageLoadedListener {
+
+    private final PagedItemLoader mLoader;
+
+    public PagedItemAdapter(@LayoutRes int itemLayoutId, PagedItemLoader loader) {
+        super(null, itemLayoutId);
+        mLoader = loader;
+        mLoader.setOnPageLoadedListener(this);
+    }
+
+    @Override
+    public int getCount() {
+        return mLoader.getCount();
+    }
+
+    /**
+     * @return the item or null for a placeholder
+     */
+    @Override
+    public CharSequence getItem(int position) {
+        return mLoader.get(position);
+    }
+
+    /**
+     * Filtering is not supported, positions are always original positions.
+     */
+    @Override
+    public boolean isFilterable() {
+        return false;
+    }
+
+    @Override
+    public void onPageLoaded() {
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Rows of the page stay placeholders, the page is requested again when they are bound.
+     */
+    @Override
+    public void onPageLoadFailed(Throwable error) {
+    }
+}
@@ -0,0 +1,259 @@
+package com.avast.android.dialogs.util;
+
+import java.util.concurrent.Executor;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+
+import com.avast.android.dialogs.iface.IListItemSource;
+
+/**
+ * Loads items of {@link IListItemSource} page by page on a background executor and keeps a bounded number of pages,
+ * evicting the least recently used one.
+ * <p>
+ * All methods must be called from the main thread. A page which fails to load, because the source throws or returns
+ * a wrong number of items, is requested again the next time one of its items is needed.
+ */
+public class PagedItemLoader {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_MAX_PAGES = 8;
+
+    public interface OnPageLoadedListener {
+
+        public void onPageLoaded();
+
+        /**
+         * @param error thrown by the source, or {@link IllegalStateException} when it returned a wrong number of items
+         */
+        public void onPageLoadFailed(Throwable error);
+    }
+
+    public interface OnItemsResolvedListener {
+
+        /**
+         * @param items values of the requested positions, in the same order
+         */
+        public void onItemsResolved(CharSequence[] items);
+
+        /**
+         * @param error thrown by the source, or {@link IllegalStateException} when it returned a wrong number of items
+         */
+        public void onItemsFailed(Throwable error);
+    }
+
+    private final IListItemSource mSource;
+
+    private final int mCount;
+
+    private final int mPageSize;
+
+    private final int mMaxPages;
+
+    private final Executor mExecutor;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final SparseArray<Page> mPages = new SparseArray<>();
+
+    private final SparseBooleanArray mPendingPages = new SparseBooleanArray();
+
+    private long mUseCounter;
+
+    private boolean mReleased;
+
+    private OnPageLoadedListener mOnPageLoadedListener;
+
+    public PagedItemLoader(IListItemSource source) {
+        this(source, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    public PagedItemLoader(IListItemSource source, int pageSize, int maxPages, Executor executor) {
+        mSource = source;
+        mCount = source.getCount();
+        mPageSize = pageSize;
+        mMaxPages = maxPages;
+        mExecutor = executor;
+    }
+
+    public void setOnPageLoadedListener(OnPageLoadedListener listener) {
+        mOnPageLoadedListener = listener;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return the item or null when its page isn't loaded yet, loading of the page is started then
+     */
+    @MainThread
+    @Nullable
+    public CharSequence get(int position) {
+        int pageIndex = position / mPageSize;
+        Page page = mPages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return null;
+        }
+        page.lastUsed = ++mUseCounter;
+        return page.getItem(position - pageIndex * mPageSize);
+    }
+
+    /**
+     * Get values of given positions, loading pages which are not cached in the background.
+     * The listener is called on the main thread, right away when all items are cached.
+     */
+    @MainThread
+    public void resolve(final int[] positions, final OnItemsResolvedListener listener) {
+        final CharSequence[] items = new CharSequence[positions.length];
+        boolean complete = true;
+        for (int i = 0; i < positions.length; i++) {
+            Page page = mPages.get(positions[i] / mPageSize);
+            if (page != null) {
+                items[i] = page.getItem(positions[i] % mPageSize);
+            } else {
+                complete = false;
+            }
+        }
+        if (complete) {
+            listener.onItemsResolved(items);
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Throwable error = null;
+                try {
+                    // loaded only for this call, they don't go into the cache
+                    SparseArray<Page> loaded = new SparseArray<>();
+                    for (int i = 0; i < positions.length; i++) {
+                        if (items[i] == null) {
+                            int pageIndex = positions[i] / mPageSize;
+                            Page page = loaded.get(pageIndex);
+                            if (page == null) {
+                                page = loadPage(pageIndex);
+                                loaded.put(pageIndex, page);
+                            }
+                            items[i] = page.getItem(positions[i] % mPageSize);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+                final Throwable failure = error;
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mReleased) {
+                            return;
+                        }
+                        if (failure != null) {
+                            listener.onItemsFailed(failure);
+                        } else {
+                            listener.onItemsResolved(items);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stop delivering results, pages being loaded are dropped.
+     */
+    @MainThread
+    public void release() {
+        mReleased = true;
+        mPages.clear();
+        mOnPageLoadedListener = null;
+    }
+
+    private void requestPage(final int pageIndex) {
+        if (mReleased || mPendingPages.get(pageIndex)) {
+            return;
+        }
+        mPendingPages.put(pageIndex, true);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Page loaded = null;
+                Throwable error = null;
+                try {
+                    loaded = loadPage(pageIndex);
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+                final Page page = loaded;
+                final Throwable failure = error;
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // also after a failure, the page is requested again when needed
+                        mPendingPages.delete(pageIndex);
+                        if (mReleased) {
+                            return;
+                        }
+                        if (page != null) {
+                            putPage(pageIndex, page);
+                        }
+                        if (mOnPageLoadedListener == null) {
+                            return;
+                        }
+                        if (failure != null) {
+                            mOnPageLoadedListener.onPageLoadFailed(failure);
+                        } else {
+                            mOnPageLoadedListener.onPageLoaded();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private Page loadPage(int pageIndex) {
+        int offset = pageIndex * mPageSize;
+        int count = Math.min(mPageSize, mCount - offset);
+        CharSequence[] items = mSource.loadItems(offset, count);
+        if (items == null || items.length != count) {
+            throw new IllegalStateException("loadItems(" + offset + ", " + count + ") returned "
+                    + (items == null ? "null" : items.length + " items"));
+        }
+        return new Page(items);
+    }
+
+    private void putPage(int pageIndex, Page page) {
+        page.lastUsed = ++mUseCounter;
+        mPages.put(pageIndex, page);
+        if (mPages.size() > mMaxPages) {
+            int eldest = 0;
+            for (int i = 1; i < mPages.size(); i++) {
+                if (mPages.valueAt(i).lastUsed < mPages.valueAt(eldest).lastUsed) {
+                    eldest = i;
+                }
+            }
+            mPages.removeAt(eldest);
+        }
+    }
+
+    private static class Page {
+
+        final CharSequence[] items;
+
+        long lastUsed;
+
+        Page(CharSequence[] items) {
+            this.items = items;
+        }
+
+        CharSequence getItem(int index) {
+            return items[index];
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.avast.android.dialogs.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import android.content.res.TypedArray;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Checkable;
+import android.widget.TextView;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.core.view.ViewCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.avast.android.dialogs.R;
+
+/**
+ * RecyclerView counterpart of {@link ListItemAdapter}. Changes of shown items, new items or filtering with
+ * {@link #setPositions(int[])}, are diffed by item id on a background thread and applied as item animations.
+ * <p>
+ * The new items are the current ones right away, rows show the previous items until the diff is applied. Positions
+ * passed to the click listener and {@link #onBindViewHolder(ViewHolder, CharSequence, int)} are always original
+ * positions of the current items.
+ * <p>
+ * Diffs of all adapters run one by one on a single background thread, a diff superseded by a newer change before it
+ * starts is skipped. Changes too large to be diffed quickly are applied at once without item animations.
+ */
+public class RecyclerItemAdapter extends RecyclerView.Adapter<RecyclerItemAdapter.ViewHolder> {
+
+    public interface OnItemClickListener {
+
+        /**
+         * @param position original position of the item
+         */
+        public void onItemClick(View view, int position);
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+
+        /**
+         * {@code R.id.sdl_text} of the row, null if there is none
+         */
+        public final TextView text;
+
+        /**
+         * The row itself when it's {@link Checkable}, otherwise null
+         */
+        public final Checkable checkable;
+
+        public ViewHolder(View itemView) {
+            super(itemView);
+            text = (TextView) itemView.findViewById(R.id.sdl_text);
+            checkable = itemView instanceof Checkable ? (Checkable) itemView : null;
+        }
+    }
+
+    /**
+     * Shown rows, they keep their texts, so rows of removed items can still be bound until the diff is applied
+     */
+    private static final class Rows {
+
+        final long[] ids;
+
+        final CharSequence[] texts;
+
+        Rows(int count) {
+            ids = new long[count];
+            texts = new CharSequence[count];
+        }
+    }
+
+    /**
+     * Changes with more old and new rows together are not diffed
+     */
+    private static final int MAX_DIFF_ROWS = 4000;
+
+    /**
+     * Changes adding or removing more rows are not diffed, the diff takes time quadratic in the number of edits
+     */
+    private static final int MAX_DIFF_SIZE_CHANGE = 1000;
+
+    private static final Executor sDiffExecutor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "RecyclerItemAdapter diff");
+        }
+    });
+
+    @LayoutRes
+    private final int mItemLayoutId;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private CharSequence[] mItems;
+
+    private ItemIds mIds;
+
+    /**
+     * Original positions of shown items, null to show all of them
+     */
+    private int[] mPositions;
+
+    private Rows mRows;
+
+    /**
+     * Increased with every change on the main thread, a diff of an older change is skipped or dropped
+     */
+    private volatile int mGeneration;
+
+    private LayoutInflater mInflater;
+
+    private SelectionBitSet mSelection;
+
+    private OnItemClickListener mOnItemClickListener;
+
+    public RecyclerItemAdapter(CharSequence[] items, @LayoutRes int itemLayoutId) {
+        this(items, null, itemLayoutId);
+    }
+
+    /**
+     * @param ids stable ids of the items, null to use positions
+     */
+    public RecyclerItemAdapter(CharSequence[] items, ItemIds ids, @LayoutRes int itemLayoutId) {
+        mItems = items;
+        mIds = ids != null ? ids : new ItemIds(null, items.length);
+        mItemLayoutId = itemLayoutId;
+        mRows = createRows();
+        setHasStableIds(true);
+    }
+
+    /**
+     * @param selection checked state bound to {@link Checkable} rows, null for no checked state
+     */
+    public void setSelection(SelectionBitSet selection) {
+        mSelection = selection;
+    }
+
+    public void setOnItemClickListener(OnItemClickListener listener) {
+        mOnItemClickListener = listener;
+    }
+
+    /**
+     * Replace the items, rows are updated once the diff is computed.
+     *
+     * @param ids       stable ids of the items
+     * @param positions original positions of items to show, null to show all of them
+     */
+    public void setItems(CharSequence[] items, ItemIds ids, int[] positions) {
+        mItems = items;
+        mIds = ids;
+        mPositions = positions;
+        dispatchChange();
+    }
+
+    /**
+     * @param positions original positions of items to show, null to show all of them
+     */
+    public void setPositions(int[] positions) {
+        mPositions = positions;
+        dispatchChange();
+    }
+
+    @Override
+    public int getItemCount() {
+        return mRows.ids.length;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mRows.ids[position];
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (mInflater == null) {
+            mInflater = LayoutInflater.from(parent.getContext());
+        }
+        View itemView = mInflater.inflate(mItemLayoutId, parent, false);
+        // RecyclerView has no list selector, rows get it as their background
+        TypedArray a = parent.getContext().obtainStyledAttributes(new int[]{R.attr.sdlListSelector});
+        ViewCompat.setBackground(itemView, a.getDrawable(0));
+        a.recycle();
+
+        final ViewHolder holder = onCreateViewHolder(itemView);
+        itemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                int adapterPosition = holder.getAdapterPosition();
+                if (adapterPosition == RecyclerView.NO_POSITION || mOnItemClickListener == null) {
+                    return;
+                }
+                // -1 when the item was already removed and only its row is left
+                int position = mIds.indexOf(mRows.ids[adapterPosition]);
+                if (position != -1) {
+                    mOnItemClickListener.onItemClick(view, position);
+                }
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        onBindViewHolder(holder, mRows.texts[position], mIds.indexOf(mRows.ids[position]));
+    }
+
+    protected ViewHolder onCreateViewHolder(View itemView) {
+        return new ViewHolder(itemView);
+    }
+
+    /**
+     * @param position original position of the item, -1 when the item was already removed and its row is going to
+     *                 disappear
+     */
+    protected void onBindViewHolder(ViewHolder holder, CharSequence item, int position) {
+        if (holder.text != null) {
+            holder.text.setText(item);
+        }
+        if (holder.checkable != null && mSelection != null) {
+            holder.checkable.setChecked(position != -1 && mSelection.isChecked(position));
+        }
+    }
+
+    private Rows createRows() {
+        int count = mPositions != null ? mPositions.length : mItems.length;
+        Rows rows = new Rows(count);
+        for (int i = 0; i < count; i++) {
+            int position = mPositions != null ? mPositions[i] : i;
+            rows.ids[i] = mIds.getId(position);
+            rows.texts[i] = mItems[position];
+        }
+        return rows;
+    }
+
+    private void dispatchChange() {
+        final Rows oldRows = mRows;
+        final Rows newRows = createRows();
+        final int generation = ++mGeneration;
+        int oldCount = oldRows.ids.length;
+        int newCount = newRows.ids.length;
+        if (oldCount + newCount > MAX_DIFF_ROWS || Math.abs(oldCount - newCount) > MAX_DIFF_SIZE_CHANGE) {
+            mRows = newRows;
+            notifyDataSetChanged();
+            return;
+        }
+        sDiffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    // a newer change is already waiting for its own diff
+                    return;
+                }
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                    @Override
+                    public int getOldListSize() {
+                        return oldRows.ids.length;
+                    }
+
+                    @Override
+                    public int getNewListSize() {
+                        return newRows.ids.length;
+                    }
+
+                    @Override
+                    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                        return oldRows.ids[oldItemPosition] == newRows.ids[newItemPosition];
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                        return TextUtils.equals(oldRows.texts[oldItemPosition], newRows.texts[newItemPosition]);
+                    }
+                }, false);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            mRows = newRows;
+                            result.dispatchUpdatesTo(RecyclerItemAdapter.this);
+                        }
+                    }
+                });
+            }
+        });
+    }
+}
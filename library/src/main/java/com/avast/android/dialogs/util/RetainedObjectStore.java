@@ -0,0 +1,43 @@
+package com.avast.android.dialogs.util;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Process-scoped store for objects which are too big or impossible to put into fragment arguments.
+ * <p>
+ * Only the token goes into the Bundle. The store doesn't survive process death, so whoever reads a token must handle
+ * a missing object. Tokens are random, a token saved by a previous process never matches an object of the current
+ * one.
+ */
+public final class RetainedObjectStore {
+
+    private static final ConcurrentHashMap<String, Object> sObjects = new ConcurrentHashMap<>();
+
+    private RetainedObjectStore() {
+    }
+
+    /**
+     * @return token to get the object back with
+     */
+    public static String put(Object object) {
+        String token = UUID.randomUUID().toString();
+        sObjects.put(token, object);
+        return token;
+    }
+
+    /**
+     * @return stored object or null when there is none, e.g. after process death
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String token) {
+        return (T) sObjects.get(token);
+    }
+
+    public static void remove(String token) {
+        sObjects.remove(token);
+    }
+}
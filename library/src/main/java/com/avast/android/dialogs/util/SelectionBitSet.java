@@ -0,0 +1,165 @@
+package com.avast.android.dialogs.util;
+
+import android.util.SparseBooleanArray;
+
+/**
+ * Checked state of a fixed number of list positions, one bit per position. The number of checked positions is kept
+ * up to date, so {@link #getCheckedCount()} doesn't iterate.
+ * <p>
+ * Iterate checked positions without allocating:
+ * <pre>
+ * for (int p = selection.nextChecked(0); p != -1; p = selection.nextChecked(p + 1)) {
+ *     ...
+ * }
+ * </pre>
+ */
+public class SelectionBitSet {
+
+    private final long[] mWords;
+
+    private final int mSize;
+
+    private int mCheckedCount;
+
+    public SelectionBitSet(int size) {
+        mSize = size;
+        mWords = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * @return selection with positions which are true in given array, positions out of range are ignored
+     */
+    public static SelectionBitSet from(SparseBooleanArray checkedItems, int size) {
+        SelectionBitSet selection = new SelectionBitSet(size);
+        for (int i = 0; i < checkedItems.size(); i++) {
+            int position = checkedItems.keyAt(i);
+            if (checkedItems.valueAt(i) && position >= 0 && position < size) {
+                selection.setChecked(position, true);
+            }
+        }
+        return selection;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int getCheckedCount() {
+        return mCheckedCount;
+    }
+
+    public boolean isChecked(int position) {
+        return (mWords[position >>> 6] & (1L << position)) != 0;
+    }
+
+    public void setChecked(int position, boolean checked) {
+        int index = position >>> 6;
+        long mask = 1L << position;
+        boolean current = (mWords[index] & mask) != 0;
+        if (current == checked) {
+            return;
+        }
+        if (checked) {
+            mWords[index] |= mask;
+            mCheckedCount++;
+        } else {
+            mWords[index] &= ~mask;
+            mCheckedCount--;
+        }
+    }
+
+    /**
+     * @return new state of the position
+     */
+    public boolean toggle(int position) {
+        boolean checked = !isChecked(position);
+        setChecked(position, checked);
+        return checked;
+    }
+
+    public void setAllChecked(boolean checked) {
+        setRangeChecked(0, mSize, checked);
+    }
+
+    /**
+     * @param from first position, inclusive
+     * @param to   last position, exclusive
+     */
+    public void setRangeChecked(int from, int to, boolean checked) {
+        if (from >= to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        for (int i = first; i <= last; i++) {
+            long mask = -1L;
+            if (i == first) {
+                mask &= firstMask;
+            }
+            if (i == last) {
+                mask &= lastMask;
+            }
+            long word = mWords[i];
+            long updated = checked ? word | mask : word & ~mask;
+            mCheckedCount += Long.bitCount(updated) - Long.bitCount(word);
+            mWords[i] = updated;
+        }
+    }
+
+    public void invert() {
+        if (mWords.length == 0) {
+            return;
+        }
+        for (int i = 0; i < mWords.length; i++) {
+            mWords[i] = ~mWords[i];
+        }
+        // bits past the last position must stay clear
+        mWords[mWords.length - 1] &= -1L >>> -mSize;
+        mCheckedCount = mSize - mCheckedCount;
+    }
+
+    /**
+     * @return first checked position at or after given one, -1 when there is none
+     */
+    public int nextChecked(int fromPosition) {
+        if (fromPosition >= mSize) {
+            return -1;
+        }
+        int index = fromPosition >>> 6;
+        long word = mWords[index] & (-1L << fromPosition);
+        while (true) {
+            if (word != 0) {
+                return (index << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == mWords.length) {
+                return -1;
+            }
+            word = mWords[index];
+        }
+    }
+
+    /**
+     * @return checked positions in ascending order
+     */
+    public int[] toArray() {
+        int[] positions = new int[mCheckedCount];
+        int i = 0;
+        for (int p = nextChecked(0); p != -1; p = nextChecked(p + 1)) {
+            positions[i++] = p;
+        }
+        return positions;
+    }
+
+    /**
+     * Replace content of given array with checked positions.
+     */
+    public void writeTo(SparseBooleanArray checkedItems) {
+        checkedItems.clear();
+        for (int p = nextChecked(0); p != -1; p = nextChecked(p + 1)) {
+            // ascending keys are appended without searching
+            checkedItems.append(p, true);
+        }
+    }
+}
@@ -4,12 +4,40 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.SparseBooleanArray;
 
+/**
+ * SparseBooleanArray which can be put into a Bundle.
+ * <p>
+ * Only true keys are written, as runs of consecutive keys, so a selection of thousands of adjacent positions takes a
+ * few ints. The first int is negative and identifies the format, arrays written by older versions (starting with a
+ * non-negative size) are still read.
+ */
 public class SparseBooleanArrayParcelable extends SparseBooleanArray implements Parcelable {
+
+    /**
+     * Run-length encoded true keys: run count, then start and length of each run.
+     */
+    private static final int FORMAT_RUNS = -1;
+
     public static Parcelable.Creator<SparseBooleanArrayParcelable> CREATOR = new Parcelable.Creator<SparseBooleanArrayParcelable>() {
         @Override
         public SparseBooleanArrayParcelable createFromParcel(Parcel source) {
             SparseBooleanArrayParcelable read = new SparseBooleanArrayParcelable();
-            int size = source.readInt();
+            int header = source.readInt();
+            if (header == FORMAT_RUNS) {
+                int runs = source.readInt();
+                for (int i = 0; i < runs; i++) {
+                    int start = source.readInt();
+                    int length = source.readInt();
+                    for (int key = start; key < start + length; key++) {
+                        // keys were written in ascending order
+                        read.append(key, true);
+                    }
+                }
+                return read;
+            }
+
+            // size followed by an array of keys and an array of values
+            int size = header;
 
             int[] keys = new int[size];
             boolean[] values = new boolean[size];
@@ -36,7 +64,7 @@ public class SparseBooleanArrayParcelable extends SparseBooleanArray implements
 
     public SparseBooleanArrayParcelable(SparseBooleanArray sparseBooleanArray) {
         for (int i = 0; i < sparseBooleanArray.size(); i++) {
-            this.put(sparseBooleanArray.keyAt(i), sparseBooleanArray.valueAt(i));
+            this.append(sparseBooleanArray.keyAt(i), sparseBooleanArray.valueAt(i));
         }
     }
 
@@ -47,16 +75,40 @@ public class SparseBooleanArrayParcelable extends SparseBooleanArray implements
 
     @Override
     public void writeToParcel(Parcel dest, int flags) {
-        int[] keys = new int[size()];
-        boolean[] values = new boolean[size()];
+        dest.writeInt(FORMAT_RUNS);
+        dest.writeInt(countRuns());
+        int i = 0;
+        while (i < size()) {
+            if (!valueAt(i)) {
+                i++;
+                continue;
+            }
+            int start = keyAt(i);
+            int length = 1;
+            while (++i < size() && valueAt(i) && keyAt(i) == start + length) {
+                length++;
+            }
+            dest.writeInt(start);
+            dest.writeInt(length);
+        }
+    }
 
+    /**
+     * @return number of runs of consecutive true keys
+     */
+    private int countRuns() {
+        int runs = 0;
+        boolean inRun = false;
+        int previousKey = 0;
         for (int i = 0; i < size(); i++) {
-            keys[i] = keyAt(i);
-            values[i] = valueAt(i);
+            boolean value = valueAt(i);
+            int key = keyAt(i);
+            if (value && !(inRun && key == previousKey + 1)) {
+                runs++;
+            }
+            inRun = value;
+            previousKey = key;
         }
-
-        dest.writeInt(size());
-        dest.writeIntArray(keys);
-        dest.writeBooleanArray(values);
+        return runs;
     }
-}
\ No newline at end of file
+}
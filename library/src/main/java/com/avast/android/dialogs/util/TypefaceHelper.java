@@ -1,9 +1,10 @@
 package com.avast.android.dialogs.util;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import android.content.Context;
 import android.graphics.Typeface;
-
-import androidx.collection.SimpleArrayMap;
+import android.os.Process;
 
 /*
     Taken from:
@@ -26,17 +27,67 @@ import androidx.collection.SimpleArrayMap;
 */
 public class TypefaceHelper {
 
-    private static final SimpleArrayMap<String, Typeface> cache = new SimpleArrayMap<>();
+    public static final String ROBOTO_REGULAR = "Roboto-Regular";
+    public static final String ROBOTO_MEDIUM = "Roboto-Medium";
+
+    /**
+     * Reads are lock-free, writes happen only under sLoadLock
+     */
+    private static final ConcurrentHashMap<String, Typeface> cache = new ConcurrentHashMap<>();
+
+    private static final Object sLoadLock = new Object();
 
+    private static volatile FontSource sFontSource = FontSource.ASSETS;
+
+    /**
+     * Set where dialogs take their fonts from, {@link FontSource#ASSETS} by default.
+     */
+    public static void setFontSource(FontSource fontSource) {
+        sFontSource = fontSource;
+    }
+
+    public static FontSource getFontSource() {
+        return sFontSource;
+    }
+
+    /**
+     * Get cached typeface from the {@code fonts} assets, loading it on the first use.
+     * Cached fonts are returned without locking or allocation.
+     */
     public static Typeface get(Context c, String name) {
-        synchronized (cache) {
-            if (!cache.containsKey(name)) {
-                Typeface t = Typeface.createFromAsset(
-                        c.getAssets(), String.format("fonts/%s.ttf", name));
-                cache.put(name, t);
-                return t;
+        Typeface typeface = cache.get(name);
+        if (typeface == null) {
+            typeface = load(c, name);
+        }
+        return typeface;
+    }
+
+    /**
+     * Load fonts of the current {@link FontSource} on a background thread, call it when your application starts.
+     * Dialogs created after the prefetch has finished never touch the assets.
+     */
+    public static void prefetch(Context context) {
+        final Context appContext = context.getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                FontSource fontSource = sFontSource;
+                fontSource.getRegular(appContext);
+                fontSource.getMedium(appContext);
+            }
+        }, "sdl-typeface-prefetch").start();
+    }
+
+    private static Typeface load(Context c, String name) {
+        // never load the same font twice, see the memory issue above
+        synchronized (sLoadLock) {
+            Typeface typeface = cache.get(name);
+            if (typeface == null) {
+                typeface = Typeface.createFromAsset(c.getAssets(), "fonts/" + name + ".ttf");
+                cache.put(name, typeface);
             }
-            return cache.get(name);
+            return typeface;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package com.avast.android.dialogs.core;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.shadows.ShadowLooper;
+
+import android.os.Bundle;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.fragment.app.FragmentManager;
+
+import com.avast.android.dialogs.R;
+import com.avast.android.dialogs.fragment.SimpleDialogFragment;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class DialogSchedulerTest {
+
+    public static class TestActivity extends AppCompatActivity {
+
+        @Override
+        protected void onCreate(Bundle savedInstanceState) {
+            setTheme(R.style.Theme_AppCompat_Light);
+            super.onCreate(savedInstanceState);
+        }
+    }
+
+    @Test
+    public void dialogCommittedWhileStoppedDoesNotBlockAfterRecreation() {
+        ActivityController<TestActivity> controller = Robolectric.buildActivity(TestActivity.class).setup();
+        controller.pause().stop();
+        Bundle savedState = new Bundle();
+        controller.saveInstanceState(savedState);
+
+        // committed allowing state loss, so it's not part of the saved state
+        TestActivity activity = controller.get();
+        SimpleDialogFragment.createBuilder(activity, activity.getSupportFragmentManager())
+                .setMessage("first")
+                .setTag("first")
+                .schedule();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertNotNull(activity.getSupportFragmentManager().findFragmentByTag("first"));
+
+        // recreated, e.g. rotated, while stopped
+        controller.destroy();
+        ActivityController<TestActivity> recreated = Robolectric.buildActivity(TestActivity.class).setup(savedState);
+        FragmentManager fragmentManager = recreated.get().getSupportFragmentManager();
+        assertNull(fragmentManager.findFragmentByTag("first"));
+
+        SimpleDialogFragment.createBuilder(recreated.get(), fragmentManager)
+                .setMessage("second")
+                .setTag("second")
+                .schedule();
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertNotNull(fragmentManager.findFragmentByTag("second"));
+    }
+}
@@ -0,0 +1,87 @@
+package com.avast.android.dialogs.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ItemIdsTest {
+
+    @Test
+    public void positionsAsIds() {
+        ItemIds ids = new ItemIds(null, 3);
+
+        assertEquals(2, ids.getId(2));
+        assertEquals(1, ids.indexOf(1));
+        assertEquals(-1, ids.indexOf(3));
+        assertEquals(-1, ids.indexOf(-1));
+        assertNull(ids.toArray());
+    }
+
+    @Test
+    public void explicitIds() {
+        ItemIds ids = new ItemIds(new long[]{Long.MIN_VALUE, -1, 0, Long.MAX_VALUE}, 4);
+
+        assertEquals(0, ids.indexOf(Long.MIN_VALUE));
+        assertEquals(1, ids.indexOf(-1));
+        assertEquals(2, ids.indexOf(0));
+        assertEquals(3, ids.indexOf(Long.MAX_VALUE));
+        assertEquals(-1, ids.indexOf(1));
+    }
+
+    @Test
+    public void noIds() {
+        ItemIds ids = new ItemIds(new long[0], 0);
+
+        assertEquals(-1, ids.indexOf(0));
+    }
+
+    @Test
+    public void manyIds() {
+        int count = 10000;
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            // sparse ids sharing their low bits
+            values[i] = (long) i << 20;
+        }
+        ItemIds ids = new ItemIds(values, count);
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, ids.indexOf(values[i]));
+        }
+        assertEquals(-1, ids.indexOf(1L << 40));
+    }
+
+    @Test
+    public void collidingIds() {
+        // 2 ids get a table of 8 slots, find ids hashing to the last one
+        long[] colliding = new long[3];
+        int found = 0;
+        for (long id = 0; found < colliding.length; id++) {
+            if ((hash(id) & 7) == 7) {
+                colliding[found++] = id;
+            }
+        }
+
+        // the first two take the last slot and wrap around to the first one
+        ItemIds ids = new ItemIds(new long[]{colliding[0], colliding[1]}, 2);
+
+        assertEquals(0, ids.indexOf(colliding[0]));
+        assertEquals(1, ids.indexOf(colliding[1]));
+        // probes past both of them
+        assertEquals(-1, ids.indexOf(colliding[2]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongCount() {
+        new ItemIds(new long[2], 3);
+    }
+
+    /**
+     * Same as ItemIds.hash()
+     */
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,77 @@
+package com.avast.android.dialogs.util;
+
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class ListItemFilterTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final CharSequence[] ITEMS = {
+            "New York",
+            "Newark",
+            "York",
+            "new-york city",
+            "Yorkshire Terrier",
+            null,
+            "Brno 2"
+    };
+
+    @Test
+    public void matchesWordPrefixes() {
+        assertArrayEquals(new int[]{0, 1, 3}, filter("new"));
+        assertArrayEquals(new int[]{0, 2, 3, 4}, filter("york"));
+    }
+
+    @Test
+    public void doesNotMatchInsideWords() {
+        assertArrayEquals(new int[0], filter("ork"));
+        assertArrayEquals(new int[0], filter("wark"));
+    }
+
+    @Test
+    public void everyQueryWordMustMatch() {
+        assertArrayEquals(new int[]{0, 3}, filter("new york"));
+        assertArrayEquals(new int[]{3}, filter("york ci"));
+        assertArrayEquals(new int[0], filter("newark york"));
+    }
+
+    @Test
+    public void punctuationSeparatesWords() {
+        assertArrayEquals(new int[]{0, 3}, filter("new-yo"));
+        assertArrayEquals(new int[]{6}, filter("2"));
+    }
+
+    @Test
+    public void ignoresCase() {
+        assertArrayEquals(new int[]{4}, filter("TERR"));
+    }
+
+    @Test
+    public void emptyQueryShowsAll() {
+        assertNull(filter("  "));
+    }
+
+    private static int[] filter(String query) {
+        final int[][] result = {{-1}};
+        new ListItemFilter(ITEMS, DIRECT).filter(query, new ListItemFilter.OnFilterResultListener() {
+            @Override
+            public void onFilterResult(int[] positions) {
+                result[0] = positions;
+            }
+        });
+        return result[0];
+    }
+}
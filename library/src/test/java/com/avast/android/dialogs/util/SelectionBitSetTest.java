@@ -0,0 +1,120 @@
+package com.avast.android.dialogs.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SelectionBitSetTest {
+
+    @Test
+    public void rangeEndingAtWordBoundary() {
+        SelectionBitSet selection = new SelectionBitSet(200);
+
+        selection.setRangeChecked(0, 64, true);
+
+        assertEquals(64, selection.getCheckedCount());
+        assertTrue(selection.isChecked(63));
+        assertFalse(selection.isChecked(64));
+    }
+
+    @Test
+    public void rangeStartingAtWordBoundary() {
+        SelectionBitSet selection = new SelectionBitSet(200);
+
+        selection.setRangeChecked(64, 128, true);
+
+        assertEquals(64, selection.getCheckedCount());
+        assertFalse(selection.isChecked(63));
+        assertTrue(selection.isChecked(64));
+        assertTrue(selection.isChecked(127));
+        assertFalse(selection.isChecked(128));
+    }
+
+    @Test
+    public void rangeAcrossWords() {
+        SelectionBitSet selection = new SelectionBitSet(200);
+        selection.setChecked(70, true);
+
+        selection.setRangeChecked(63, 129, true);
+
+        assertEquals(66, selection.getCheckedCount());
+        assertEquals(63, selection.nextChecked(0));
+        assertEquals(-1, selection.nextChecked(129));
+
+        selection.setRangeChecked(64, 128, false);
+
+        assertArrayEquals(new int[]{63, 128}, selection.toArray());
+    }
+
+    @Test
+    public void emptyRange() {
+        SelectionBitSet selection = new SelectionBitSet(10);
+
+        selection.setRangeChecked(5, 5, true);
+
+        assertEquals(0, selection.getCheckedCount());
+    }
+
+    @Test
+    public void allCheckedWithSizeAtWordBoundary() {
+        SelectionBitSet selection = new SelectionBitSet(128);
+
+        selection.setAllChecked(true);
+
+        assertEquals(128, selection.getCheckedCount());
+        assertEquals(127, selection.nextChecked(127));
+    }
+
+    @Test
+    public void invertKeepsCount() {
+        SelectionBitSet selection = new SelectionBitSet(70);
+        selection.setChecked(0, true);
+        selection.setChecked(69, true);
+
+        selection.invert();
+
+        assertEquals(68, selection.getCheckedCount());
+        assertFalse(selection.isChecked(0));
+        assertFalse(selection.isChecked(69));
+        // bits past the size stay clear
+        assertEquals(68, selection.toArray().length);
+        assertEquals(-1, selection.nextChecked(69));
+    }
+
+    @Test
+    public void invertWithSizeAtWordBoundary() {
+        SelectionBitSet selection = new SelectionBitSet(64);
+        selection.setChecked(10, true);
+
+        selection.invert();
+
+        assertEquals(63, selection.getCheckedCount());
+        assertTrue(selection.isChecked(63));
+        assertFalse(selection.isChecked(10));
+    }
+
+    @Test
+    public void invertEmpty() {
+        SelectionBitSet selection = new SelectionBitSet(0);
+
+        selection.invert();
+
+        assertEquals(0, selection.getCheckedCount());
+        assertEquals(-1, selection.nextChecked(0));
+    }
+
+    @Test
+    public void setCheckedTwiceCountsOnce() {
+        SelectionBitSet selection = new SelectionBitSet(10);
+
+        selection.setChecked(3, true);
+        selection.setChecked(3, true);
+        selection.toggle(4);
+        selection.toggle(4);
+
+        assertEquals(1, selection.getCheckedCount());
+    }
+}
@@ -0,0 +1,107 @@
+package com.avast.android.dialogs.util;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.os.Parcel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class SparseBooleanArrayParcelableTest {
+
+    @Test
+    public void emptyRoundTrip() {
+        SparseBooleanArrayParcelable read = roundTrip(new SparseBooleanArrayParcelable());
+
+        assertEquals(0, read.size());
+    }
+
+    @Test
+    public void singleRunRoundTrip() {
+        SparseBooleanArrayParcelable array = new SparseBooleanArrayParcelable();
+        for (int key = 10; key < 15; key++) {
+            array.put(key, true);
+        }
+
+        SparseBooleanArrayParcelable read = roundTrip(array);
+
+        assertEquals(5, read.size());
+        for (int key = 10; key < 15; key++) {
+            assertTrue(read.get(key));
+        }
+    }
+
+    @Test
+    public void manyRunsRoundTrip() {
+        SparseBooleanArrayParcelable array = new SparseBooleanArrayParcelable();
+        array.put(0, true);
+        array.put(1, true);
+        array.put(2, false);
+        array.put(3, true);
+        array.put(7, true);
+        array.put(8, true);
+        array.put(1000, true);
+
+        SparseBooleanArrayParcelable read = roundTrip(array);
+
+        // false keys are not written
+        assertEquals(6, read.size());
+        int[] expectedKeys = {0, 1, 3, 7, 8, 1000};
+        for (int i = 0; i < expectedKeys.length; i++) {
+            assertEquals(expectedKeys[i], read.keyAt(i));
+            assertTrue(read.valueAt(i));
+        }
+    }
+
+    @Test
+    public void writesOneRunForAdjacentKeys() {
+        SparseBooleanArrayParcelable array = new SparseBooleanArrayParcelable();
+        for (int key = 0; key < 5000; key++) {
+            array.append(key, true);
+        }
+        Parcel parcel = Parcel.obtain();
+        try {
+            array.writeToParcel(parcel, 0);
+
+            // format, run count, start and length
+            assertEquals(4 * 4, parcel.dataSize());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void readsLegacyFormat() {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeInt(3);
+            parcel.writeIntArray(new int[]{2, 5, 9});
+            parcel.writeBooleanArray(new boolean[]{true, false, true});
+            parcel.setDataPosition(0);
+
+            SparseBooleanArrayParcelable read = SparseBooleanArrayParcelable.CREATOR.createFromParcel(parcel);
+
+            assertEquals(3, read.size());
+            assertTrue(read.get(2));
+            assertFalse(read.get(5, true));
+            assertTrue(read.get(9));
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static SparseBooleanArrayParcelable roundTrip(SparseBooleanArrayParcelable array) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            array.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return SparseBooleanArrayParcelable.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}